@@ -0,0 +1,69 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Per frame cost of the in process gesture classifier, run from the project root so the exported model is found.
+// Frames are either replayed from a stream_landmarks.py recording or made up of random landmarks.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GestureInferenceBenchmark {
+  private static final int FRAMES = 1024;
+
+  @Param({"src/application/Find_Gesture/model.bin"})
+  public String model;
+
+  @Param({""}) // path of a recording, random landmarks when empty
+  public String recording;
+
+  private RandomForestModel forest;
+  private float[][] frames;
+  private float[] probabilities;
+  private int frame;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    forest = RandomForestModel.read(Path.of(model));
+    probabilities = new float[forest.getClassCount()];
+    frames = new float[FRAMES][LandmarkSource.FEATURES];
+    int recorded = 0;
+    if (!recording.isEmpty()) {
+      try (LandmarkSource source = FramedLandmarkSource.open(Path.of(recording))) {
+        while (recorded < FRAMES && source.next(frames[recorded]) >= 0) {
+          recorded++;
+        }
+      }
+    }
+    Random random = new Random(42);
+    for (int i = recorded; i < FRAMES; i++) {
+      for (int feature = 0; feature < LandmarkSource.FEATURES; feature++) {
+        frames[i][feature] = random.nextFloat();
+      }
+    }
+  }
+
+  @Benchmark
+  public int classify() {
+    frame = (frame + 1) & (FRAMES - 1);
+    return forest.classify(frames[frame], probabilities);
+  }
+}
@@ -0,0 +1,206 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Replays recorded hand landmarks through the real gesture pipeline without a camera or the FX toolkit:
+// LandmarkQueue, GestureClassifier and GestureDispatcher, with a single thread standing in for the FX thread.
+// Every rate is run for a while and reports throughput, dropped frames and the latency from a frame entering
+// the pipeline to its command being applied. Exits with 1 when p99 exceeds --max-p99-ms, so it can guard releases.
+//
+// java -cp <classpath> application.GestureReplay [--model path] [--samples samples.csv | --recording frames.bin]
+//     [--rates recorded,30,120,480] [--seconds 5] [--ui-cost-micros 0] [--max-p99-ms 50]
+public class GestureReplay {
+  private static final int QUEUE_CAPACITY = 4; // same as GestureEngineService
+  private static final float MIN_CONFIDENCE = 0.6f; // defaults of the gesture preferences
+  private static final int AGREEING_FRAMES = 3;
+
+  private record Frames(float[][] features, long[] offsetsMicros) {} // offsets are null when nothing was recorded
+
+  private record Result(double offeredPerSecond, double classifiedPerSecond, long dropped, long actions,
+      LatencyHistogram latency) {}
+
+  public static void main(String[] args) throws Exception {
+    Path model = Path.of("src/application/Find_Gesture/model.bin");
+    Path samples = Path.of("src/application/Find_Gesture/samples.csv");
+    Path recording = null;
+    String rates = "30,60,120,240,480,960,1920";
+    double seconds = 5;
+    long uiCostMicros = 0;
+    double maxP99Millis = Double.MAX_VALUE;
+    for (int i = 0; i < args.length; i += 2) {
+      String value = args[i + 1];
+      switch (args[i]) {
+        case "--model" -> model = Path.of(value);
+        case "--samples" -> samples = Path.of(value);
+        case "--recording" -> recording = Path.of(value);
+        case "--rates" -> rates = value;
+        case "--seconds" -> seconds = Double.parseDouble(value);
+        case "--ui-cost-micros" -> uiCostMicros = Long.parseLong(value);
+        case "--max-p99-ms" -> maxP99Millis = Double.parseDouble(value);
+        default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+
+    RandomForestModel forest = RandomForestModel.read(model);
+    Frames frames = recording != null ? readRecording(recording) : readSamples(samples);
+    System.out.printf("%d frames from %s, UI update cost %d micros%n", frames.features().length,
+        recording != null ? recording : samples, uiCostMicros);
+    System.out.printf("%10s %11s %13s %8s %8s %8s %8s %8s%n", "rate/s", "offered/s", "classified/s", "dropped",
+        "actions", "p50 ms", "p99 ms", "max ms");
+
+    boolean withinBudget = true;
+    for (String rate : rates.split(",")) {
+      boolean recorded = rate.equals("recorded");
+      if (recorded && frames.offsetsMicros() == null) {
+        System.out.printf("%10s skipped, the samples have no capture times%n", rate);
+        continue;
+      }
+      Result result = replay(forest, frames, recorded ? 0 : Double.parseDouble(rate), seconds, uiCostMicros);
+      double p99 = result.latency().percentile(0.99) / 1000.0;
+      System.out.printf("%10s %11.1f %13.1f %8d %8d %8.2f %8.2f %8.2f%n", rate, result.offeredPerSecond(),
+          result.classifiedPerSecond(), result.dropped(), result.actions(), result.latency().percentile(0.5) / 1000.0,
+          p99, result.latency().getMax() / 1000.0);
+      withinBudget &= p99 <= maxP99Millis;
+    }
+    if (!withinBudget) {
+      System.out.printf("p99 latency above the budget of %.1f ms%n", maxP99Millis);
+      System.exit(1);
+    }
+  }
+
+  // Offer frames at the given rate, or at their recorded pace for rate 0, and wait for the pipeline to drain
+  private static Result replay(RandomForestModel forest, Frames frames, double rate, double seconds,
+      long uiCostMicros) throws Exception {
+    ExecutorService ui = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "replay-ui"));
+    CountingCommands commands = new CountingCommands(uiCostMicros);
+    GestureDispatcher dispatcher = new GestureDispatcher(commands, ui, MIN_CONFIDENCE, AGREEING_FRAMES);
+    LandmarkQueue queue = new LandmarkQueue(QUEUE_CAPACITY);
+    GestureClassifier classifier = new GestureClassifier(forest);
+    AtomicLong classified = new AtomicLong();
+    Thread classifying = new Thread(() -> {
+      try {
+        classifier.run(queue, (gesture, confidence, capturedMicros) -> {
+          classified.incrementAndGet();
+          dispatcher.gestureReceived(gesture, confidence, capturedMicros);
+        });
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }, "replay-classifier");
+    classifying.start();
+
+    int count = rate > 0 ? (int) Math.max(1, rate * seconds) : frames.features().length;
+    long start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      long offsetNanos = rate > 0 ? (long) (i * 1e9 / rate) : frames.offsetsMicros()[i] * 1000;
+      waitUntil(start + offsetNanos);
+      queue.offer(frames.features()[i % frames.features().length], EpochClock.nowMicros());
+    }
+    double offeredSeconds = (System.nanoTime() - start) / 1e9;
+    queue.close();
+    classifying.join();
+    ui.shutdown();
+    ui.awaitTermination(10, TimeUnit.SECONDS);
+    double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+    return new Result(count / offeredSeconds, classified.get() / elapsedSeconds, queue.getDroppedFrames(),
+        commands.actions, dispatcher.getLatency());
+  }
+
+  private static void waitUntil(long deadlineNanos) throws InterruptedException {
+    long remaining;
+    while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+      if (remaining > 2_000_000) {
+        Thread.sleep(1); // sleep is too coarse for the last stretch
+      } else {
+        Thread.onSpinWait();
+      }
+    }
+  }
+
+  // samples.csv as written by Find_Gesture/export_samples.py: a header, then a label and 42 features per line
+  private static Frames readSamples(Path path) throws IOException {
+    List<float[]> features = new ArrayList<>();
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      String line = reader.readLine(); // header
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split(",");
+        if (fields.length != LandmarkSource.FEATURES + 1) {
+          continue;
+        }
+        float[] frame = new float[LandmarkSource.FEATURES];
+        for (int i = 0; i < frame.length; i++) {
+          frame[i] = Float.parseFloat(fields[i + 1]);
+        }
+        features.add(frame);
+      }
+    }
+    return new Frames(features.toArray(new float[0][]), null);
+  }
+
+  // Frames recorded with stream_landmarks.py --record, with their capture times relative to the first frame
+  private static Frames readRecording(Path path) throws IOException {
+    List<float[]> features = new ArrayList<>();
+    List<Long> captured = new ArrayList<>();
+    try (LandmarkSource source = FramedLandmarkSource.open(path)) {
+      float[] frame = new float[LandmarkSource.FEATURES];
+      long capturedMicros;
+      while ((capturedMicros = source.next(frame)) >= 0) {
+        features.add(frame.clone());
+        captured.add(capturedMicros);
+      }
+    }
+    long[] offsets = new long[captured.size()];
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = Math.max(0, captured.get(i) - captured.get(0));
+    }
+    return new Frames(features.toArray(new float[0][]), offsets);
+  }
+
+  // Counts the commands instead of touching an editor, busy for the given time per UI update like a loaded FX thread
+  private static class CountingCommands implements GestureDispatcher.Commands {
+    private final long costNanos;
+    private volatile long actions; // only written by the replay UI thread
+
+    CountingCommands(long costMicros) {
+      this.costNanos = costMicros * 1000;
+    }
+
+    @Override
+    public void scrollBy(int pixels) {
+      actions++;
+    }
+
+    @Override
+    public void zoomBy(double factor) {
+      actions++;
+    }
+
+    @Override
+    public void nextNote() {
+      actions++;
+    }
+
+    @Override
+    public void prevNote() {
+      actions++;
+    }
+
+    @Override
+    public void showPrediction(Gesture gesture, float confidence) {
+      long end = System.nanoTime() + costNanos;
+      while (System.nanoTime() < end) {
+        Thread.onSpinWait();
+      }
+    }
+  }
+}
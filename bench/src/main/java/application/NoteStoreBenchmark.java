@@ -0,0 +1,126 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// NoteStore against synthetic vaults of growing size: scanning the whole vault, opening, saving and counting the words
+// of notes spread over it, and deleting notes and folders the way the app does
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class NoteStoreBenchmark {
+  private static final int NOTE_STRIDE = 7919; // prime, so consecutive operations hit notes far apart in the vault
+
+  @Param({"1000", "10000", "100000"})
+  public int notes;
+
+  private Path vault;
+  private Path scratch; // notes and folders the delete benchmarks create and delete again
+  private NoteStore store;
+  private List<Path> paths;
+  private String content;
+  private int next;
+
+  // A note created before every invocation of deleteNote
+  @State(Scope.Thread)
+  public static class ScratchNote {
+    Path note;
+
+    @Setup(Level.Invocation)
+    public void create(NoteStoreBenchmark benchmark) throws IOException {
+      note = benchmark.store.createNote(benchmark.scratch, "scratch");
+    }
+  }
+
+  // A full folder created before every invocation of deleteFolder
+  @State(Scope.Thread)
+  public static class ScratchFolder {
+    private final Random random = new Random();
+    Path folder;
+
+    @Setup(Level.Invocation)
+    public void create(NoteStoreBenchmark benchmark) throws IOException {
+      folder = benchmark.store.createDirectory(benchmark.scratch, "folder");
+      for (int i = 0; i < SyntheticVault.NOTES_PER_FOLDER; i++) {
+        Files.writeString(folder.resolve("note-" + i + ".html"), SyntheticVault.note(random, 2048));
+      }
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    vault = SyntheticVault.create(notes);
+    // explicit saves wait for the disk, as they do in the app
+    store = new NoteStore(vault, new AtomicNoteWriter(AtomicNoteWriter.Durability.FULL));
+    paths = store.notes();
+    content = store.read(paths.get(0));
+    scratch = store.createDirectory(vault, "scratch");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    SyntheticVault.delete(vault);
+  }
+
+  private Path nextNote() {
+    next = (next + NOTE_STRIDE) % paths.size();
+    return paths.get(next);
+  }
+
+  // every folder and note of the vault, as the catalog and the search index reconcile it
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public int scan() throws IOException {
+    int[] entries = new int[1];
+    store.walk(_ -> entries[0]++);
+    return entries[0];
+  }
+
+  @Benchmark
+  public String open() throws IOException {
+    return store.read(nextNote());
+  }
+
+  @Benchmark
+  public void save() throws IOException {
+    store.write(nextNote(), content);
+  }
+
+  @Benchmark
+  public int count() throws IOException {
+    return store.countWords(nextNote());
+  }
+
+  @Benchmark
+  public void deleteNote(ScratchNote scratchNote) throws IOException {
+    store.delete(scratchNote.note);
+  }
+
+  // moved into the trash and purged, the app only waits for the move
+  @Benchmark
+  public void deleteFolder(ScratchFolder scratchFolder) throws IOException {
+    store.deleteDirectory(scratchFolder.folder);
+  }
+}
@@ -0,0 +1,75 @@
+package application;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Save latency of AtomicNoteWriter under each durability policy, with the old in-place write as a reference
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveLatencyBenchmark {
+  @Param({"NONE", "DATA", "FULL"})
+  public AtomicNoteWriter.Durability durability;
+
+  @Param({"4096", "262144"}) // a typical note and a long one
+  public int noteSize;
+
+  private Path directory;
+  private Path note;
+  private String content;
+  private AtomicNoteWriter writer;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("skrib-save-bench");
+    note = directory.resolve("note.html");
+    writer = new AtomicNoteWriter(durability);
+
+    StringBuilder html = new StringBuilder("<html><body contenteditable=\"true\">");
+    while (html.length() < noteSize) {
+      html.append("<p>Skrib note with some non-ASCII text: café naïve über</p>");
+    }
+    content = html.append("</body></html>").toString();
+    Files.writeString(note, content);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  public void atomicSave() throws IOException {
+    writer.write(note, content);
+  }
+
+  // what saveFileContent did before: an in-place, unsynced write that truncates the note first
+  @Benchmark
+  public void inPlaceWrite() throws IOException {
+    Files.write(note, content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,77 @@
+package application;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Ranked search over the index of a synthetic vault, the way the search field queries it as the user types. The
+// target is a full page of hits in under 10 ms on a 50k note vault.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class SearchIndexBenchmark {
+  private static final int MAX_RESULTS = 20; // a page of hits, as the search field shows them
+  // common and rare words, several words, and the last word still being typed, which matches as a prefix
+  private static final String[] WORD_QUERIES = { "meeting", "café", "budget review", "the project plan" };
+  private static final String[] PREFIX_QUERIES = { "rem", "summary qu", "garden ri", "naïve dr" };
+
+  @Param({"50000"})
+  public int notes;
+
+  private Path vault;
+  private SearchIndex index;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    vault = SyntheticVault.create(notes);
+    index = new SearchIndex();
+    List<Path> paths = new NoteStore(vault, new AtomicNoteWriter(AtomicNoteWriter.Durability.NONE)).notes();
+    for (Path path : paths) {
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+        index.put(VaultFiles.relativeName(vault, path), attributes.lastModifiedTime().toMillis(), attributes.size(),
+            reader);
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    SyntheticVault.delete(vault);
+  }
+
+  @Benchmark
+  public List<SearchIndex.Hit> words() {
+    next = (next + 1) % WORD_QUERIES.length;
+    return index.search(WORD_QUERIES[next], MAX_RESULTS);
+  }
+
+  @Benchmark
+  public List<SearchIndex.Hit> prefix() {
+    next = (next + 1) % PREFIX_QUERIES.length;
+    return index.search(PREFIX_QUERIES[next], MAX_RESULTS);
+  }
+}
@@ -0,0 +1,60 @@
+package application;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// A generated vault for the benchmarks: notes of one to three kilobytes in folders of 100, grouped into 20 folders a
+// level up, like a vault that grew over the years. Seeded, so every run benchmarks the same vault.
+final class SyntheticVault {
+  static final int NOTES_PER_FOLDER = 100;
+  private static final int FOLDERS_PER_GROUP = 20;
+  private static final long SEED = 20240611L;
+  private static final String[] WORDS = {
+      "skrib", "note", "meeting", "idea", "draft", "café", "naïve", "über", "project", "vault", "garden", "river",
+      "tomorrow", "review", "budget", "the", "a", "of", "and", "to", "in", "is", "with", "for", "on", "list", "fix",
+      "remember", "call", "buy", "read", "write", "plan", "week", "summary", "question", "answer", "link", "quote"
+  };
+
+  private SyntheticVault() {}
+
+  // A new vault in the temp directory with the given number of notes
+  static Path create(int notes) throws IOException {
+    Path vault = Files.createTempDirectory("skrib-vault-bench");
+    Random random = new Random(SEED);
+    for (int i = 0; i < notes; i++) {
+      int folder = i / NOTES_PER_FOLDER;
+      Path directory = vault.resolve(String.format("group-%03d/folder-%05d", folder / FOLDERS_PER_GROUP, folder));
+      if (i % NOTES_PER_FOLDER == 0) {
+        Files.createDirectories(directory);
+      }
+      Files.write(directory.resolve(String.format("note-%07d.html", i)),
+          note(random, 1024 + random.nextInt(2048)).getBytes(StandardCharsets.UTF_8));
+    }
+    return vault;
+  }
+
+  // A note as the HTMLEditor saves it, about size characters long
+  static String note(Random random, int size) {
+    StringBuilder html = new StringBuilder("<html dir=\"ltr\"><head></head><body contenteditable=\"true\">");
+    while (html.length() < size) {
+      html.append("<p>");
+      for (int words = 4 + random.nextInt(24); words > 0; words--) {
+        String word = WORDS[random.nextInt(WORDS.length)];
+        html.append(random.nextInt(12) == 0 ? "<b>" + word + "</b>" : word).append(' ');
+      }
+      html.append("</p>");
+    }
+    return html.append("</body></html>").toString();
+  }
+
+  static void delete(Path vault) throws IOException {
+    try (Stream<Path> paths = Files.walk(vault)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+}
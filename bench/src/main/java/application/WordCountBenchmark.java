@@ -0,0 +1,61 @@
+package application;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Word count of large notes: the streaming HtmlTokenizer against the regex passes updateWordCount used to run
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g"})
+public class WordCountBenchmark {
+  @Param({"65536", "1048576"})
+  public int noteSize;
+
+  private String html;
+  private HtmlTokenizer tokenizer;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    StringBuilder builder = new StringBuilder("<html dir=\"ltr\"><head></head><body contenteditable=\"true\">");
+    int paragraph = 0;
+    while (builder.length() < noteSize) {
+      builder.append("<p>Paragraph ").append(paragraph++)
+          .append(" has <b>bold</b> and <i>italic</i> words,&nbsp;a <a href=\"https://example.com/?a=1&amp;b=2\">link</a>")
+          .append("<br>and a second line.</p>\n");
+    }
+    html = builder.append("</body></html>").toString();
+    tokenizer = new HtmlTokenizer();
+  }
+
+  @Benchmark
+  public int streamingTokenizer() {
+    tokenizer.reset();
+    tokenizer.feed(html);
+    tokenizer.finish();
+    return tokenizer.wordCount();
+  }
+
+  @Benchmark
+  public int regexPasses() {
+    String text = html.replaceAll("(?i)<br\\s*/?>", "\n");
+    text = text.replaceAll("(?i)</p>", "\n");
+    String plainText = text.replaceAll("<[^>]+>", "");
+    String[] words = plainText.trim().split("\\s+");
+    return plainText.trim().isEmpty() ? 0 : words.length;
+  }
+}
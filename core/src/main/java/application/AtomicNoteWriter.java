@@ -0,0 +1,77 @@
+package application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Writes notes as UTF-8 through a sibling temp file which replaces the note in a single rename,
+// so a crash mid-write leaves either the old or the new note but never a truncated one
+public class AtomicNoteWriter {
+  // How hard the writer pushes data to the disk before the rename
+  public enum Durability {
+    NONE, // leave flushing to the OS - fastest, recent saves can be lost on power failure
+    DATA, // force file contents before the rename
+    FULL // force contents and metadata, and sync the directory after the rename
+  }
+
+  private final Durability durability;
+
+  public AtomicNoteWriter(Durability durability) {
+    this.durability = durability;
+  }
+
+  public Durability getDurability() {
+    return durability;
+  }
+
+  public void write(Path target, String content) throws IOException {
+    ByteBuffer bytes = StandardCharsets.UTF_8.encode(content);
+    Path directory = target.toAbsolutePath().getParent();
+    Path temp = directory.resolve("." + target.getFileName() + "."
+        + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+      if (durability == Durability.DATA) {
+        channel.force(false);
+      } else if (durability == Durability.FULL) {
+        channel.force(true);
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+
+    try {
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      // some file systems can't rename atomically, replacing is still better than rewriting in place
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+
+    if (durability == Durability.FULL) {
+      syncDirectory(directory);
+    }
+  }
+
+  // make the rename itself durable, not every platform allows opening a directory so failures are ignored
+  private static void syncDirectory(Path directory) {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // the rename is still atomic, only its durability across a power failure is weaker
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package application;
+
+// 64-bit FNV-1a hash of note content, used to tell whether a note changed since it was last written
+public final class ContentHash {
+  private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long PRIME = 0x100000001b3L;
+
+  private ContentHash() {}
+
+  public static long of(CharSequence content) {
+    long hash = OFFSET_BASIS;
+    for (int i = 0; i < content.length(); i++) {
+      char c = content.charAt(i);
+      hash = (hash ^ (c & 0xff)) * PRIME;
+      hash = (hash ^ (c >>> 8)) * PRIME;
+    }
+    return hash;
+  }
+}
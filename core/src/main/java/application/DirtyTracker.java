@@ -0,0 +1,84 @@
+package application;
+
+// Tracks unsaved changes of an open note without reading its file. Edits bump the edit version and saves record the
+// version they wrote, the hash of what the file last held catches edits no event reported, e.g. a context menu paste.
+public class DirtyTracker {
+  // Edit version of a document at the moment its content was read for a save
+  public record Snapshot(long document, long version) {}
+
+  private long document; // bumped whenever another note is loaded, so late saves of the previous one are ignored
+  private long editVersion;
+  private long savedVersion;
+  private long savedHash; // ContentHash of what was last loaded from or written to the file
+  private boolean savedHashKnown; // false until then, or after the file was changed outside of Skribber
+  private long fileModified = -1; // modification time and size of the file right after Skribber last wrote it
+  private long fileSize = -1;
+
+  // Called on the FX thread for every edit made in the editor
+  public synchronized void edited() {
+    editVersion++;
+  }
+
+  // Take right before reading the editor content that is about to be saved
+  public synchronized Snapshot snapshot() {
+    return new Snapshot(document, editVersion);
+  }
+
+  // Called once the content read at the snapshot is on disk, possibly from a writer thread. hash is the ContentHash of
+  // what was written, modified and size what the file looked like afterwards, so the watcher's event for the write
+  // can be told apart from changes made outside of Skribber. Explicit saves as well as autosaves record them.
+  public synchronized void markSaved(Snapshot snapshot, long hash, long modified, long size) {
+    fileModified = modified;
+    fileSize = size;
+    markSaved(snapshot, hash);
+  }
+
+  // Called when a save was skipped because the file already held the content read at the snapshot
+  public synchronized void markSaved(Snapshot snapshot, long hash) {
+    savedHash = hash;
+    savedHashKnown = true;
+    if (snapshot.document() == document && snapshot.version() > savedVersion) {
+      savedVersion = snapshot.version();
+    }
+  }
+
+  // The note was read from its file, hash is the ContentHash of what was read
+  public synchronized void loaded(long hash) {
+    savedHash = hash;
+    savedHashKnown = true;
+  }
+
+  // The watcher saw the file change. Unless it still looks the way Skribber's last write left it, the change was made
+  // outside of Skribber and what the file holds now isn't known.
+  public synchronized void fileChanged(long modified, long size) {
+    if (modified != fileModified || size != fileSize) {
+      savedHashKnown = false;
+    }
+  }
+
+  // Whether the file holds content with this hash, as far as Skribber wrote or read it last
+  public synchronized boolean matchesFile(long hash) {
+    return savedHashKnown && hash == savedHash;
+  }
+
+  // A note was loaded or the editor was cleared, its content matches the disk
+  public synchronized void reset() {
+    document++;
+    editVersion = 0;
+    savedVersion = 0;
+  }
+
+  // Whether any edit since the last load or save was reported
+  public synchronized boolean isDirty() {
+    return editVersion != savedVersion;
+  }
+
+  // Whether content differs from what the file holds. The hash of Skribber's last load or save is always compared, so
+  // edits no event reported count. After a change made outside of Skribber reported edits count as well.
+  public boolean isDirty(CharSequence content) {
+    long hash = ContentHash.of(content);
+    synchronized (this) {
+      return hash != savedHash || (!savedHashKnown && editVersion != savedVersion);
+    }
+  }
+}
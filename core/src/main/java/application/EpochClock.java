@@ -0,0 +1,16 @@
+package application;
+
+// Wall clock time in microseconds, comparable with the capture times the landmark streamer takes from time.time_ns().
+// System.currentTimeMillis is too coarse for gesture latencies, so the wall clock is read once and advanced
+// with System.nanoTime from there.
+public final class EpochClock {
+  private static final long BASE_MICROS = System.currentTimeMillis() * 1000;
+  private static final long BASE_NANOS = System.nanoTime();
+
+  private EpochClock() {
+  }
+
+  public static long nowMicros() {
+    return BASE_MICROS + (System.nanoTime() - BASE_NANOS) / 1000;
+  }
+}
@@ -0,0 +1,54 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+// Continuous flight recording of the last minutes of the app, with the JDK's low overhead settings and the app's own
+// events. Dumped to a file on request, so a report of a slow vault comes with the data to explain it.
+public class FlightRecording {
+  private static final Duration MAX_AGE = Duration.ofMinutes(10);
+  private static final long MAX_SIZE = 64L * 1024 * 1024; // bytes kept on disk, older chunks are dropped
+
+  private volatile Recording recording; // dumped from a background thread
+
+  public void start() {
+    try {
+      recording = new Recording(Configuration.getConfiguration("default"));
+      recording.setName("Skribber");
+      recording.setToDisk(true);
+      recording.setMaxAge(MAX_AGE);
+      recording.setMaxSize(MAX_SIZE);
+      recording.enable(Metrics.OperationEvent.class);
+      recording.enable(Metrics.GestureEvent.class);
+      recording.enable(Metrics.FxStallEvent.class);
+      recording.start();
+    } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+      e.printStackTrace(); // e.g. a JVM without flight recorder, the stats panel still works
+      recording = null;
+    }
+  }
+
+  public boolean isRunning() {
+    return recording != null;
+  }
+
+  // Write what was recorded so far to a .jfr file, the recording goes on
+  public void dump(Path file) throws IOException {
+    if (recording == null) {
+      throw new IOException("No flight recording is running");
+    }
+    recording.dump(file);
+  }
+
+  public void stop() {
+    if (recording != null) {
+      recording.close();
+      recording = null;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package application;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Landmark frames in the format Find_Gesture/stream_landmarks.py sends, read from a socket or a recorded file.
+// Every frame is a 4 byte header (type, protocol version, payload length) followed by its payload, all big endian.
+// Frames are decoded in place from one preallocated buffer, so nothing is allocated per frame.
+public class FramedLandmarkSource implements LandmarkSource {
+  public static final int VERSION = 1;
+  public static final int FRAME_LANDMARKS = 2; // capture time in µs, then 42 float features
+  public static final int FRAME_HEARTBEAT = 3; // sent every second, paused or not, once the streamer is ready
+  public static final int FRAME_CONTROL = 4; // sent to the streamer, one of the CONTROL_ bytes
+  public static final int CONTROL_PAUSE = 0;
+  public static final int CONTROL_RESUME = 1;
+  private static final int HEADER_BYTES = 4;
+  private static final int LANDMARK_PAYLOAD_BYTES = 8 + FEATURES * 4;
+  private static final int BUFFER_BYTES = 8192;
+
+  private final ReadableByteChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.BIG_ENDIAN);
+  private volatile long lastFrameNanos; // when the last complete frame of any type arrived
+
+  public FramedLandmarkSource(ReadableByteChannel channel) {
+    this.channel = channel;
+    buffer.flip(); // empty, the buffer is kept ready for reading between calls
+  }
+
+  // Replay a file recorded with stream_landmarks.py --record
+  public static FramedLandmarkSource open(Path recording) throws IOException {
+    return new FramedLandmarkSource(FileChannel.open(recording, StandardOpenOption.READ));
+  }
+
+  // System.nanoTime of the last frame, 0 before the first one
+  public long getLastFrameNanos() {
+    return lastFrameNanos;
+  }
+
+  @Override
+  public long next(float[] features) throws IOException {
+    while (true) {
+      int start = buffer.position();
+      if (buffer.remaining() >= HEADER_BYTES) {
+        int type = buffer.get(start) & 0xFF;
+        int version = buffer.get(start + 1) & 0xFF;
+        int length = buffer.getShort(start + 2) & 0xFFFF;
+        if (version != VERSION || length > BUFFER_BYTES - HEADER_BYTES) {
+          throw new IOException("Malformed landmark frame, version " + version + ", length " + length);
+        }
+        if (buffer.remaining() >= HEADER_BYTES + length) {
+          buffer.position(start + HEADER_BYTES + length);
+          lastFrameNanos = System.nanoTime();
+          if (type == FRAME_LANDMARKS && length >= LANDMARK_PAYLOAD_BYTES) {
+            int offset = start + HEADER_BYTES + 8;
+            for (int i = 0; i < FEATURES; i++) {
+              features[i] = buffer.getFloat(offset + i * 4);
+            }
+            return buffer.getLong(start + HEADER_BYTES);
+          }
+          continue; // heartbeats and frame types this version doesn't know are skipped
+        }
+      }
+      // rest of the frame is still on its way
+      buffer.compact();
+      int read = channel.read(buffer);
+      buffer.flip();
+      if (read < 0) {
+        return -1;
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,57 @@
+package application;
+
+// Gestures the hand classifier knows, ids match the class numbers used when the training images were collected
+public enum Gesture {
+  SCROLL_DOWN(1, "scroll down", true),
+  SCROLL_UP(2, "scroll up", true),
+  NEXT_NOTE(3, "next note", false),
+  PREV_NOTE(4, "prev note", false),
+  ZOOM_IN(5, "zoom in", true),
+  ZOOM_OUT(6, "zoom out", true);
+
+  private static final Gesture[] BY_ID = new Gesture[8];
+
+  static {
+    for (Gesture gesture : values()) {
+      BY_ID[gesture.id] = gesture;
+    }
+  }
+
+  private final int id;
+  private final String label;
+  private final boolean continuous; // keeps acting while the pose is held, like scrolling
+
+  Gesture(int id, String label, boolean continuous) {
+    this.id = id;
+    this.label = label;
+    this.continuous = continuous;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  // Name of the class in the training data
+  public String getLabel() {
+    return label;
+  }
+
+  public boolean isContinuous() {
+    return continuous;
+  }
+
+  // null for class names this version doesn't know
+  public static Gesture fromLabel(String label) {
+    for (Gesture gesture : values()) {
+      if (gesture.label.equals(label)) {
+        return gesture;
+      }
+    }
+    return null;
+  }
+
+  // null for ids this version doesn't know
+  public static Gesture fromId(int id) {
+    return id >= 0 && id < BY_ID.length ? BY_ID[id] : null;
+  }
+}
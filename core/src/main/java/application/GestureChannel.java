@@ -0,0 +1,108 @@
+package application;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+// Accepts the landmark streamer's connection on a loopback socket, moves its frames into the landmark queue and
+// tells it to pause or resume. Frames are only queued while running, the streamer's heartbeats keep it alive either way.
+public class GestureChannel {
+  private final LandmarkQueue queue;
+  private final ByteBuffer control = ByteBuffer.allocate(5).order(ByteOrder.BIG_ENDIAN);
+  private ServerSocketChannel server;
+  private volatile SocketChannel connection;
+  private volatile FramedLandmarkSource source;
+  private volatile boolean running;
+  private Thread thread;
+
+  public GestureChannel(LandmarkQueue queue) {
+    this.queue = queue;
+  }
+
+  // Listen on a free loopback port and return it, the streamer process is told to connect there
+  public int open() throws IOException {
+    server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+    return ((InetSocketAddress) server.getLocalAddress()).getPort();
+  }
+
+  // Wait for the streamer to connect and read its frames on a background thread
+  public void start() {
+    thread = new Thread(this::run, "skrib-gesture-channel");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  // Time of the last frame of any kind in System.nanoTime, 0 until the streamer is ready
+  public long getLastFrameNanos() {
+    FramedLandmarkSource current = source;
+    return current != null ? current.getLastFrameNanos() : 0;
+  }
+
+  // Ask the streamer to process camera frames or to idle, it's told again when it connects later
+  public void setRunning(boolean running) {
+    this.running = running;
+    sendControl();
+  }
+
+  public void close() {
+    try {
+      if (server != null) {
+        server.close();
+      }
+      SocketChannel current = connection;
+      if (current != null) {
+        current.close(); // wakes the reader thread up
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void run() {
+    try (SocketChannel channel = server.accept();
+        FramedLandmarkSource frames = new FramedLandmarkSource(channel)) {
+      server.close(); // only one streamer connects
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      connection = channel;
+      source = frames;
+      sendControl();
+
+      float[] features = new float[LandmarkSource.FEATURES];
+      long capturedMicros;
+      while ((capturedMicros = frames.next(features)) >= 0) {
+        if (running) {
+          queue.offer(features, capturedMicros);
+        }
+      }
+    } catch (AsynchronousCloseException e) {
+      // closed
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private synchronized void sendControl() {
+    SocketChannel current = connection;
+    if (current == null) {
+      return;
+    }
+    control.clear();
+    control.put((byte) FramedLandmarkSource.FRAME_CONTROL).put((byte) FramedLandmarkSource.VERSION).putShort((short) 1)
+        .put((byte) (running ? FramedLandmarkSource.CONTROL_RESUME : FramedLandmarkSource.CONTROL_PAUSE));
+    control.flip();
+    try {
+      while (control.hasRemaining()) {
+        current.write(control);
+      }
+    } catch (IOException e) {
+      e.printStackTrace(); // the watchdog notices a streamer that went away
+    }
+  }
+}
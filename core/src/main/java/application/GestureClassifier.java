@@ -0,0 +1,39 @@
+package application;
+
+import java.io.IOException;
+
+// Runs landmark frames through the exported random forest and reports the most likely gesture of each frame
+public class GestureClassifier {
+  // Called on the classifying thread for every frame
+  public interface Listener {
+    void gestureReceived(Gesture gesture, float confidence, long capturedMicros);
+  }
+
+  private final RandomForestModel model;
+  private final Gesture[] gestures; // by class index, null for classes Skribber has no command for
+  private final float[] features = new float[LandmarkSource.FEATURES];
+  private final float[] probabilities;
+
+  public GestureClassifier(RandomForestModel model) {
+    if (model.getFeatureCount() != LandmarkSource.FEATURES) {
+      throw new IllegalArgumentException("Gesture model expects " + model.getFeatureCount() + " features");
+    }
+    this.model = model;
+    gestures = new Gesture[model.getClassCount()];
+    for (int c = 0; c < gestures.length; c++) {
+      gestures[c] = Gesture.fromLabel(model.getLabel(c));
+    }
+    probabilities = new float[model.getClassCount()];
+  }
+
+  // Classify every frame until the source ends, buffers are reused so nothing is allocated per frame
+  public void run(LandmarkSource source, Listener listener) throws IOException {
+    long capturedMicros;
+    while ((capturedMicros = source.next(features)) >= 0) {
+      int best = model.classify(features, probabilities);
+      if (gestures[best] != null) {
+        listener.gestureReceived(gestures[best], probabilities[best], capturedMicros);
+      }
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package application;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Turns the stream of classifier predictions into editor commands.
+// A gesture only counts once enough consecutive confident frames agree on it, which filters out single noisy frames.
+// Scroll and zoom frames add up into one delta, note switches fire once per held pose, and whatever piled up is
+// handed to the UI executor in a single drain, so the FX thread sees at most one update per pulse.
+public class GestureDispatcher {
+  private static final int SCROLL_STEP = 40; // pixels per agreeing frame
+  private static final double ZOOM_STEP = 1.02; // zoom factor per agreeing frame
+
+  // What gestures do in the editor, always called on the UI executor
+  public interface Commands {
+    void scrollBy(int pixels);
+    void zoomBy(double factor);
+    void nextNote();
+    void prevNote();
+    void showPrediction(Gesture gesture, float confidence);
+  }
+
+  private final Commands commands;
+  private final Executor uiExecutor;
+  private final float minConfidence;
+  private final int agreeingFrames;
+
+  // only touched by the thread delivering the frames
+  private Gesture streakGesture;
+  private int streak;
+  private volatile boolean resetRequested; // set by reset from any thread, applied with the next frame
+
+  // accumulated until the next drain
+  private final AtomicInteger scrollDelta = new AtomicInteger();
+  private final AtomicInteger zoomSteps = new AtomicInteger();
+  private final AtomicInteger noteSteps = new AtomicInteger();
+  private final AtomicLong oldestCapture = new AtomicLong(Long.MAX_VALUE); // capture time of the oldest frame waiting
+  private volatile Gesture lastGesture;
+  private volatile float lastConfidence;
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+  private final LatencyHistogram latency = new LatencyHistogram(); // camera frame to command applied
+
+  public GestureDispatcher(Commands commands, Executor uiExecutor, float minConfidence, int agreeingFrames) {
+    this.commands = commands;
+    this.uiExecutor = uiExecutor;
+    this.minConfidence = minConfidence;
+    this.agreeingFrames = Math.max(1, agreeingFrames);
+  }
+
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  // Forget the current streak, e.g. when the classifier is restarted. Callable from any thread, the streak itself is
+  // cleared by the thread delivering the frames before it handles the next one.
+  public void reset() {
+    resetRequested = true;
+  }
+
+  // Called for every predicted frame, from a single thread
+  public void gestureReceived(Gesture gesture, float confidence, long capturedMicros) {
+    if (resetRequested) {
+      resetRequested = false;
+      clearStreak();
+    }
+    lastGesture = gesture;
+    lastConfidence = confidence;
+    if (confidence < minConfidence) {
+      clearStreak(); // an unsure frame breaks the streak like a different gesture would
+      schedule();
+      return;
+    }
+    if (gesture == streakGesture) {
+      streak++;
+    } else {
+      streakGesture = gesture;
+      streak = 1;
+    }
+
+    // continuous gestures act on every agreeing frame, the others once per held pose
+    if (streak == agreeingFrames || (streak > agreeingFrames && gesture.isContinuous())) {
+      switch (gesture) {
+        case SCROLL_UP -> scrollDelta.addAndGet(-SCROLL_STEP);
+        case SCROLL_DOWN -> scrollDelta.addAndGet(SCROLL_STEP);
+        case ZOOM_IN -> zoomSteps.incrementAndGet();
+        case ZOOM_OUT -> zoomSteps.decrementAndGet();
+        case NEXT_NOTE -> noteSteps.incrementAndGet();
+        case PREV_NOTE -> noteSteps.decrementAndGet();
+      }
+      oldestCapture.accumulateAndGet(capturedMicros, Math::min);
+    }
+    schedule();
+  }
+
+  private void clearStreak() {
+    streakGesture = null;
+    streak = 0;
+  }
+
+  private void schedule() {
+    if (drainScheduled.compareAndSet(false, true)) {
+      uiExecutor.execute(this::drain);
+    }
+  }
+
+  // Apply everything that accumulated since the last drain as one update
+  private void drain() {
+    drainScheduled.set(false); // frames from here on schedule the next drain
+    int scroll = scrollDelta.getAndSet(0);
+    int zoom = zoomSteps.getAndSet(0);
+    int notes = noteSteps.getAndSet(0);
+    long captured = oldestCapture.getAndSet(Long.MAX_VALUE);
+
+    if (scroll != 0) {
+      commands.scrollBy(scroll);
+    }
+    if (zoom != 0) {
+      commands.zoomBy(Math.pow(ZOOM_STEP, zoom));
+    }
+    for (; notes > 0; notes--) {
+      commands.nextNote();
+    }
+    for (; notes < 0; notes++) {
+      commands.prevNote();
+    }
+    Gesture gesture = lastGesture;
+    if (captured != Long.MAX_VALUE) {
+      long micros = EpochClock.nowMicros() - captured;
+      latency.record(micros);
+      Metrics.gestureApplied(gesture, micros);
+    }
+    if (gesture != null) {
+      commands.showPrediction(gesture, lastConfidence);
+    }
+  }
+}
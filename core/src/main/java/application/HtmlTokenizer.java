@@ -0,0 +1,220 @@
+package application;
+
+// Single pass state machine that finds the words in the text of an HTML note without regexes or intermediate strings.
+// Content can be fed in chunks, so notes can be streamed through it straight from disk.
+public final class HtmlTokenizer {
+  private static final int TEXT = 0;
+  private static final int TAG_NAME = 1; // right after '<', reading the element name
+  private static final int TAG_BODY = 2; // attributes of an element, up to '>'
+  private static final int TAG_QUOTE = 3; // quoted attribute value, '>' doesn't end the tag here
+  private static final int ENTITY = 4; // right after '&', reading up to ';'
+
+  private static final int MAX_TAG_NAME = 10; // longest element name that's packed, 6 bits per character
+  private static final int MAX_ENTITY_NAME = 8;
+  private static final int MAX_WORD_LENGTH = 64; // longer words are cut when handed to a WordSink
+
+  // elements which separate words even without whitespace around them, e.g. "one<br>two" or "</p><p>"
+  private static final long[] BREAKING_TAGS = {
+    pack("br"), pack("p"), pack("div"), pack("li"), pack("ul"), pack("ol"), pack("tr"), pack("td"),
+    pack("th"), pack("h1"), pack("h2"), pack("h3"), pack("h4"), pack("h5"), pack("h6"), pack("hr"),
+    pack("pre"), pack("blockquote"), pack("table"), pack("body"), pack("head"), pack("html"), pack("title")
+  };
+  private static final long NBSP = pack("nbsp");
+  private static final long NBSP_NUMERIC = pack("#160");
+
+  private int state = TEXT;
+  private boolean inWord;
+  private int wordCount;
+
+  private long tagName; // packed name of the element being read
+  private int tagNameLength;
+  private char quote;
+
+  private long entityName; // packed name of the entity being read
+  private int entityLength;
+
+  private final WordSink sink; // receives every word, null when only counting
+  private final char[] word;
+  private int wordLength;
+
+  // Receives the characters of each word, the buffer is reused for the next word
+  public interface WordSink {
+    void word(char[] buffer, int length);
+  }
+
+  public HtmlTokenizer() {
+    this(null);
+  }
+
+  public HtmlTokenizer(WordSink sink) {
+    this.sink = sink;
+    this.word = sink != null ? new char[MAX_WORD_LENGTH] : null;
+  }
+
+  public static int countWords(CharSequence html) {
+    HtmlTokenizer tokenizer = new HtmlTokenizer();
+    tokenizer.feed(html);
+    tokenizer.finish();
+    return tokenizer.wordCount();
+  }
+
+  public void feed(CharSequence html) {
+    for (int i = 0; i < html.length(); i++) {
+      accept(html.charAt(i));
+    }
+  }
+
+  public void feed(char[] buffer, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      accept(buffer[i]);
+    }
+  }
+
+  // Close the last word, call after the whole note was fed
+  public void finish() {
+    if (state == ENTITY) {
+      inWord = true; // a dangling '&name' is still text
+    }
+    endWord();
+    state = TEXT;
+  }
+
+  public int wordCount() {
+    return wordCount;
+  }
+
+  public void reset() {
+    state = TEXT;
+    inWord = false;
+    wordCount = 0;
+    wordLength = 0;
+  }
+
+  private void accept(char c) {
+    switch (state) {
+      case TEXT -> acceptText(c);
+      case TAG_NAME -> {
+        if (c == '/' && tagNameLength == 0) {
+          return; // closing tag, same name
+        }
+        if (isLetterOrDigit(c)) {
+          if (tagNameLength < MAX_TAG_NAME) {
+            tagName = (tagName << 6) | packChar(c);
+          }
+          tagNameLength++;
+          return;
+        }
+        state = TAG_BODY;
+        acceptTagBody(c);
+      }
+      case TAG_BODY -> acceptTagBody(c);
+      case TAG_QUOTE -> {
+        if (c == quote) {
+          state = TAG_BODY;
+        }
+      }
+      case ENTITY -> {
+        if (isLetterOrDigit(c) || (c == '#' && entityLength == 0)) {
+          if (entityLength < MAX_ENTITY_NAME) {
+            entityName = (entityName << 6) | packChar(c);
+          }
+          entityLength++;
+          return;
+        }
+        state = TEXT;
+        if (c == ';' && entityLength <= MAX_ENTITY_NAME && (entityName == NBSP || entityName == NBSP_NUMERIC)) {
+          endWord(); // non breaking space separates words like any other space
+          return;
+        }
+        inWord = true; // any other entity, or a stray '&', is a visible character
+        if (c != ';') {
+          acceptText(c);
+        }
+      }
+      default -> throw new IllegalStateException("Unknown tokenizer state " + state);
+    }
+  }
+
+  private void acceptText(char c) {
+    if (c == '<') {
+      state = TAG_NAME;
+      tagName = 0;
+      tagNameLength = 0;
+    } else if (c == '&') {
+      state = ENTITY;
+      entityName = 0;
+      entityLength = 0;
+    } else if (isWhitespace(c)) {
+      endWord();
+    } else {
+      inWord = true;
+      if (sink != null && wordLength < MAX_WORD_LENGTH) {
+        word[wordLength++] = c;
+      }
+    }
+  }
+
+  private void acceptTagBody(char c) {
+    if (c == '>') {
+      state = TEXT;
+      if (isBreakingTag()) {
+        endWord();
+      }
+    } else if (c == '"' || c == '\'') {
+      quote = c;
+      state = TAG_QUOTE;
+    }
+  }
+
+  private boolean isBreakingTag() {
+    if (tagNameLength == 0 || tagNameLength > MAX_TAG_NAME) {
+      return false;
+    }
+    for (long breakingTag : BREAKING_TAGS) {
+      if (tagName == breakingTag) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void endWord() {
+    if (inWord) {
+      wordCount++;
+      inWord = false;
+      if (sink != null && wordLength > 0) {
+        sink.word(word, wordLength);
+      }
+      wordLength = 0;
+    }
+  }
+
+  // same characters as \s in the regex the word count used before, plus the non breaking space
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f' || c == 0x0B || c == 0xA0;
+  }
+
+  private static boolean isLetterOrDigit(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+  }
+
+  // letters map to 1-26 regardless of case, digits to 27-36 and '#' to 37
+  private static long packChar(char c) {
+    if (c >= 'a' && c <= 'z') {
+      return c - 'a' + 1;
+    } else if (c >= 'A' && c <= 'Z') {
+      return c - 'A' + 1;
+    } else if (c >= '0' && c <= '9') {
+      return c - '0' + 27;
+    }
+    return 37;
+  }
+
+  private static long pack(String name) {
+    long packed = 0;
+    for (int i = 0; i < name.length(); i++) {
+      packed = (packed << 6) | packChar(name.charAt(i));
+    }
+    return packed;
+  }
+}
@@ -0,0 +1,74 @@
+package application;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+// Bounded hand-off of landmark frames from the socket reader to the classifier. When the classifier falls behind,
+// the oldest frame is dropped, so it always works on recent frames and latency can't build up behind it.
+// Frames are copied into preallocated slots, nothing is allocated per frame.
+public class LandmarkQueue implements LandmarkSource {
+  private final float[][] features;
+  private final long[] captured;
+  private int head; // slot of the oldest frame
+  private int size;
+  private boolean closed;
+  private long dropped;
+
+  public LandmarkQueue(int capacity) {
+    features = new float[capacity][FEATURES];
+    captured = new long[capacity];
+  }
+
+  // Add a frame, replacing the oldest one when the queue is full
+  public synchronized void offer(float[] frame, long capturedMicros) {
+    if (closed) {
+      return;
+    }
+    if (size == features.length) {
+      head = (head + 1) % features.length;
+      size--;
+      dropped++;
+    }
+    int tail = (head + size) % features.length;
+    System.arraycopy(frame, 0, features[tail], 0, FEATURES);
+    captured[tail] = capturedMicros;
+    size++;
+    notifyAll();
+  }
+
+  @Override
+  public synchronized long next(float[] frame) throws IOException {
+    try {
+      while (size == 0 && !closed) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+    if (size == 0) {
+      return -1; // closed and drained
+    }
+    System.arraycopy(features[head], 0, frame, 0, FEATURES);
+    long capturedMicros = captured[head];
+    head = (head + 1) % features.length;
+    size--;
+    return capturedMicros;
+  }
+
+  // Forget the waiting frames, e.g. when detection is paused
+  public synchronized void clear() {
+    head = 0;
+    size = 0;
+  }
+
+  public synchronized long getDroppedFrames() {
+    return dropped;
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    notifyAll();
+  }
+}
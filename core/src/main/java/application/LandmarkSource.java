@@ -0,0 +1,13 @@
+package application;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Supplies hand landmark frames to the gesture classifier, e.g. live from the camera streamer or from a recording
+public interface LandmarkSource extends Closeable {
+  int FEATURES = 42; // x and y of the 21 landmarks of one hand
+
+  // Block until the next frame, copy its features into the array and return its capture time in microseconds,
+  // or -1 once the source has ended
+  long next(float[] features) throws IOException;
+}
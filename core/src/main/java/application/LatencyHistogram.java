@@ -0,0 +1,89 @@
+package application;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock free histogram of latencies in microseconds. Buckets are powers of two split into 8 steps,
+// so percentiles are within 12.5% of the real value while recording is a couple of array increments.
+public class LatencyHistogram {
+  private static final int SUB_BUCKETS = 8;
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int BUCKETS = 320; // up to about 2^41 microseconds, i.e. weeks
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long micros) {
+    long value = Math.max(0, micros); // clocks of two processes can disagree a little
+    counts.incrementAndGet(bucketOf(value));
+    count.incrementAndGet();
+    total.addAndGet(value);
+    max.accumulateAndGet(value, Math::max);
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public long getMean() {
+    long recorded = count.get();
+    return recorded == 0 ? 0 : total.get() / recorded;
+  }
+
+  // Upper bound of the bucket holding the given percentile, 0.5 for the median
+  public long percentile(double percentile) {
+    long recorded = count.get();
+    if (recorded == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(percentile * recorded));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      seen += counts.get(bucket);
+      if (seen >= target) {
+        return Math.min(upperBound(bucket), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  public void reset() {
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      counts.set(bucket, 0);
+    }
+    count.set(0);
+    total.set(0);
+    max.set(0);
+  }
+
+  // e.g. "p50 42 ms, p99 120 ms, max 180 ms (250 samples)"
+  public String summary() {
+    return String.format("p50 %d ms, p99 %d ms, max %d ms (%d samples)", percentile(0.5) / 1000,
+        percentile(0.99) / 1000, getMax() / 1000, getCount());
+  }
+
+  private static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return Math.min(BUCKETS - 1, (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket);
+  }
+
+  private static long upperBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    int subBucket = bucket % SUB_BUCKETS;
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return (SUB_BUCKETS + subBucket) * width + width - 1;
+  }
+}
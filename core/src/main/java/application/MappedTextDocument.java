@@ -0,0 +1,129 @@
+package application;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Read only lines of a note that is too large to load into a String. The file is memory mapped, indexed in steps
+// and only the lines that are looked at get decoded, so heap use stays about the same however large the note is.
+public class MappedTextDocument {
+  private static final int SEGMENT_SHIFT = 30; // files over 2 GB are mapped in 1 GB segments
+  private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+  private static final int MAX_LINE_BYTES = 4096; // longer lines, like minified HTML, are wrapped
+  private static final int CHECKPOINT_INTERVAL = 1024; // start offset of every 1024th line is kept
+  private static final int INDEX_STEP_BYTES = 4 * 1024 * 1024; // bytes indexed by one indexNext call
+
+  private final long size;
+  private MappedByteBuffer[] segments;
+
+  private long[] checkpoints = new long[64];
+  private int lineCount;
+  private long indexedBytes; // start of the first line that hasn't been indexed yet
+
+  private long scannedEnd; // end of the content of the line scanned last, without the line break
+  private int cursorLine = -1; // line decoded last, cells ask for lines in order so the next one starts there
+  private long cursorNext;
+  private final byte[] lineBuffer = new byte[MAX_LINE_BYTES];
+
+  public MappedTextDocument(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      size = channel.size();
+      segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+      for (int i = 0; i < segments.length; i++) {
+        long position = (long) i << SEGMENT_SHIFT;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, size - position));
+      }
+    } // the mapping stays valid after the channel is closed
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public synchronized int getLineCount() {
+    return lineCount;
+  }
+
+  public synchronized boolean isIndexed() {
+    return indexedBytes >= size;
+  }
+
+  // Index the next part of the file, returns false once every line is known. Meant for a background thread,
+  // lines found so far can already be read while it runs.
+  public synchronized boolean indexNext() {
+    long stop = Math.min(size, indexedBytes + INDEX_STEP_BYTES);
+    while (indexedBytes < stop) {
+      if (lineCount % CHECKPOINT_INTERVAL == 0) {
+        int checkpoint = lineCount / CHECKPOINT_INTERVAL;
+        if (checkpoint == checkpoints.length) {
+          checkpoints = Arrays.copyOf(checkpoints, checkpoints.length * 2);
+        }
+        checkpoints[checkpoint] = indexedBytes;
+      }
+      indexedBytes = scanLine(indexedBytes);
+      lineCount++;
+    }
+    return indexedBytes < size;
+  }
+
+  // Decode a single line, starting from the nearest checkpoint or from the line decoded before
+  public synchronized String line(int index) {
+    if (index < 0 || index >= lineCount) {
+      throw new IndexOutOfBoundsException(index);
+    }
+    int line = index - index % CHECKPOINT_INTERVAL;
+    long start = checkpoints[index / CHECKPOINT_INTERVAL];
+    if (cursorLine >= line && cursorLine < index) {
+      line = cursorLine + 1;
+      start = cursorNext;
+    }
+    while (line < index) {
+      start = scanLine(start);
+      line++;
+    }
+    long next = scanLine(start);
+    int length = (int) (scannedEnd - start);
+    for (int i = 0; i < length; i++) {
+      lineBuffer[i] = byteAt(start + i);
+    }
+    cursorLine = index;
+    cursorNext = next;
+    return new String(lineBuffer, 0, length, StandardCharsets.UTF_8);
+  }
+
+  // Drop the mapping, the memory is released once the buffers are garbage collected
+  public synchronized void close() {
+    segments = new MappedByteBuffer[0];
+    lineCount = 0;
+    indexedBytes = size;
+    cursorLine = -1;
+  }
+
+  // Find where the line starting at start ends, sets scannedEnd and returns the start of the next line.
+  // '\n' never occurs inside a multi byte UTF-8 character, so the bytes can be searched without decoding them.
+  private long scanLine(long start) {
+    long limit = Math.min(size, start + MAX_LINE_BYTES);
+    for (long position = start; position < limit; position++) {
+      if (byteAt(position) == '\n') {
+        scannedEnd = position > start && byteAt(position - 1) == '\r' ? position - 1 : position;
+        return position + 1;
+      }
+    }
+    if (limit < size) {
+      // wrap the long line, but not in the middle of a character
+      while (limit > start + 1 && (byteAt(limit) & 0xC0) == 0x80) {
+        limit--;
+      }
+    }
+    scannedEnd = limit;
+    return limit;
+  }
+
+  private byte byteAt(long position) {
+    return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & (SEGMENT_SIZE - 1)));
+  }
+}
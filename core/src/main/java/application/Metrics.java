@@ -0,0 +1,146 @@
+package application;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Latencies of the hot paths of the app. Every measurement goes into an in-process histogram for the stats panel and
+// is committed as a flight recorder event, so a recording shows where the time went next to GC, I/O and threads.
+// Events cost nothing while no recording is running, recording a latency is a few atomic increments.
+public final class Metrics {
+  public enum Operation {
+    NOTE_LOAD("Open Skrib"),
+    NOTE_SAVE("Save Skrib"),
+    AUTOSAVE("Autosave"),
+    TREE_POPULATE("Populate tree"),
+    WORD_COUNT("Word count"),
+    GESTURE("Gesture"),
+    FX_STALL("FX thread delay"),
+    STARTUP("Startup");
+
+    private final String label;
+
+    Operation(String label) {
+      this.label = label;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+  }
+
+  @Name("skribber.Operation")
+  @Label("Skribber Operation")
+  @Category("Skribber")
+  @Description("A measured operation of the app, e.g. opening or saving a note")
+  @StackTrace(false)
+  static class OperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Detail")
+    String detail;
+  }
+
+  @Name("skribber.Gesture")
+  @Label("Skribber Gesture")
+  @Category("Skribber")
+  @Description("A hand gesture command applied to the editor")
+  @StackTrace(false)
+  static class GestureEvent extends Event {
+    @Label("Gesture")
+    String gesture;
+
+    @Label("Latency")
+    @Description("From the capture of the camera frame to the command being applied")
+    @Timespan(Timespan.MICROSECONDS)
+    long latency;
+  }
+
+  @Name("skribber.FxStall")
+  @Label("Skribber FX Thread Stall")
+  @Category("Skribber")
+  @Description("The FX thread didn't run queued work for longer than the stall threshold")
+  @StackTrace(false)
+  static class FxStallEvent extends Event {
+    @Label("Stall")
+    @Timespan(Timespan.MICROSECONDS)
+    long stall;
+  }
+
+  // A running measurement, stop it once the operation is done
+  public static final class Timer {
+    private final Operation operation;
+    private final OperationEvent event = new OperationEvent();
+    private final long started = System.nanoTime();
+
+    private Timer(Operation operation) {
+      this.operation = operation;
+      event.begin();
+    }
+
+    public void stop(String detail) {
+      HISTOGRAMS.get(operation).record((System.nanoTime() - started) / 1000);
+      event.end();
+      if (event.shouldCommit()) {
+        event.operation = operation.getLabel();
+        event.detail = detail;
+        event.commit();
+      }
+    }
+  }
+
+  private static final Map<Operation, LatencyHistogram> HISTOGRAMS = new EnumMap<>(Operation.class);
+
+  static {
+    for (Operation operation : Operation.values()) {
+      HISTOGRAMS.put(operation, new LatencyHistogram());
+    }
+  }
+
+  private Metrics() {}
+
+  public static Timer start(Operation operation) {
+    return new Timer(operation);
+  }
+
+  public static LatencyHistogram get(Operation operation) {
+    return HISTOGRAMS.get(operation);
+  }
+
+  // A gesture command was applied, latency is measured from the camera frame that triggered it
+  public static void gestureApplied(Gesture gesture, long latencyMicros) {
+    HISTOGRAMS.get(Operation.GESTURE).record(latencyMicros);
+    GestureEvent event = new GestureEvent();
+    if (event.shouldCommit()) {
+      event.gesture = gesture == null ? null : gesture.getLabel();
+      event.latency = latencyMicros;
+      event.commit();
+    }
+  }
+
+  // How long work posted to the FX thread waited, stalls above the threshold are also committed as events
+  public static void fxDelay(long delayMicros, long stallThresholdMicros) {
+    HISTOGRAMS.get(Operation.FX_STALL).record(delayMicros);
+    if (delayMicros >= stallThresholdMicros) {
+      FxStallEvent event = new FxStallEvent();
+      if (event.shouldCommit()) {
+        event.stall = delayMicros;
+        event.commit();
+      }
+    }
+  }
+
+  public static void reset() {
+    for (LatencyHistogram histogram : HISTOGRAMS.values()) {
+      histogram.reset();
+    }
+  }
+}
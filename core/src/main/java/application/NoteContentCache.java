@@ -0,0 +1,104 @@
+package application;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// LRU cache of decoded note content bounded by an estimate of the memory it holds.
+// Each entry remembers the size and mtime it was read or written with, so changes on disk can be detected.
+public class NoteContentCache {
+  private static final long ENTRY_OVERHEAD = 96; // map entry, String and Path headers
+
+  public record Entry(String content, long modified, long size) {}
+
+  private final long capacityBytes;
+  private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(64, 0.75f, true); // access order
+  private long weightBytes;
+
+  private long hits;
+  private long misses;
+
+  public NoteContentCache(long capacityBytes) {
+    this.capacityBytes = capacityBytes;
+  }
+
+  public synchronized String get(Path path) {
+    Entry entry = entries.get(path);
+    if (entry == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    return entry.content();
+  }
+
+  public synchronized boolean contains(Path path) {
+    return entries.containsKey(path);
+  }
+
+  public synchronized void put(Path path, String content, long modified, long size) {
+    long weight = weigh(content);
+    if (weight > capacityBytes) {
+      remove(path); // a note bigger than the whole cache would only evict everything else
+      return;
+    }
+    Entry previous = entries.put(path, new Entry(content, modified, size));
+    if (previous != null) {
+      weightBytes -= weigh(previous.content());
+    }
+    weightBytes += weight;
+
+    Iterator<Map.Entry<Path, Entry>> eldest = entries.entrySet().iterator();
+    while (weightBytes > capacityBytes && eldest.hasNext()) {
+      weightBytes -= weigh(eldest.next().getValue().content());
+      eldest.remove();
+    }
+  }
+
+  public synchronized void remove(Path path) {
+    Entry removed = entries.remove(path);
+    if (removed != null) {
+      weightBytes -= weigh(removed.content());
+    }
+  }
+
+  // drop an entry unless it still matches the file on disk, e.g. our own save seen by the vault watcher
+  public synchronized void removeIfStale(Path path, long modified, long size) {
+    Entry entry = entries.get(path);
+    if (entry != null && (entry.modified() != modified || entry.size() != size)) {
+      remove(path);
+    }
+  }
+
+  public synchronized void removeUnder(Path directory) {
+    List<Path> removed = new ArrayList<>();
+    for (Path path : entries.keySet()) {
+      if (path.startsWith(directory)) {
+        removed.add(path);
+      }
+    }
+    for (Path path : removed) {
+      remove(path);
+    }
+  }
+
+  public synchronized long getWeightBytes() {
+    return weightBytes;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  // strings hold up to two bytes per char
+  private static long weigh(String content) {
+    return ENTRY_OVERHEAD + 2L * content.length();
+  }
+}
@@ -0,0 +1,96 @@
+package application;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Reads notes on background threads through a NoteContentCache, so reopening a recent note needs no disk access.
+// Notes of at least the large note size are only looked at, never read, so even their size isn't asked for on the
+// caller's thread.
+public class NoteLoader {
+  private final NoteContentCache cache;
+  private final long largeNoteSize;
+  private final ExecutorService executor;
+  private final Map<Path, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>(); // one read per note at a time
+
+  public NoteLoader(long cacheCapacityBytes, long largeNoteSize) {
+    cache = new NoteContentCache(cacheCapacityBytes);
+    this.largeNoteSize = largeNoteSize;
+    executor = Executors.newFixedThreadPool(2, runnable -> {
+      Thread thread = new Thread(runnable, "skrib-note-loader");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public NoteContentCache getCache() {
+    return cache;
+  }
+
+  // Content of a note, already completed when the note is cached. Completes with null for a large note, which is
+  // left unread.
+  public CompletableFuture<String> load(Path path) {
+    String cached = cache.get(path);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+    CompletableFuture<String> future = new CompletableFuture<>();
+    CompletableFuture<String> running = inFlight.putIfAbsent(path, future);
+    if (running != null) {
+      return running;
+    }
+    // attached outside the map's update, a read that's already done removes it right here
+    future.whenComplete((_, _) -> inFlight.remove(path, future));
+    executor.execute(() -> {
+      try {
+        future.complete(read(path));
+      } catch (RuntimeException e) {
+        future.completeExceptionally(e);
+      }
+    });
+    return future;
+  }
+
+  // Warm the cache for a note the user is likely to open next, large notes are left alone
+  public void prefetch(Path path) {
+    if (!cache.contains(path) && !inFlight.containsKey(path)) {
+      load(path);
+    }
+  }
+
+  // Called after a note was written so the cache holds what is on disk
+  public void put(Path path, String content) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      cache.put(path, content, attributes.lastModifiedTime().toMillis(), attributes.size());
+    } catch (IOException e) {
+      cache.remove(path);
+    }
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private String read(Path path) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      if (attributes.size() >= largeNoteSize) {
+        return null;
+      }
+      String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+      cache.put(path, content, attributes.lastModifiedTime().toMillis(), attributes.size());
+      return content;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
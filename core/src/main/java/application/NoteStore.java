@@ -0,0 +1,238 @@
+package application;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+// Storage of a vault without any UI: listing, reading, writing and deleting notes, resolving the names the user types
+// and counting words. Calls block, the app makes them from its background services, benchmarks and tools directly.
+public class NoteStore {
+  private static final String TRASH_DIRECTORY = "trash";
+  private static final String NOTE_EXTENSION = ".html"; // default type for application
+
+  // A single listed entry of a directory
+  public record Entry(Path path, boolean directory) {}
+
+  private final Path vault;
+  private final Path absoluteVault;
+  private final AtomicNoteWriter writer;
+
+  public NoteStore(Path vault, AtomicNoteWriter writer) {
+    this.vault = vault;
+    this.absoluteVault = vault.toAbsolutePath().normalize();
+    this.writer = writer;
+  }
+
+  public Path getVault() {
+    return vault;
+  }
+
+  //                                        Scanning
+
+  // Direct children of a directory of the vault, without Skribber's metadata and the temp files of running saves
+  public void list(Path directory, Consumer<Entry> consumer) throws IOException {
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path path : stream) {
+        if (VaultFiles.isMetadata(path) || VaultFiles.isTemporary(path)) {
+          continue;
+        }
+        consumer.accept(new Entry(path, Files.isDirectory(path)));
+      }
+    } catch (DirectoryIteratorException e) {
+      throw e.getCause();
+    }
+  }
+
+  public List<Entry> list(Path directory) throws IOException {
+    List<Entry> entries = new ArrayList<>();
+    list(directory, entries::add);
+    return entries;
+  }
+
+  // Every folder and file of the vault, folders before what's in them
+  public void walk(Consumer<Entry> consumer) throws IOException {
+    Files.walkFileTree(vault, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+        if (VaultFiles.isMetadata(dir)) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        if (!dir.equals(vault)) {
+          consumer.accept(new Entry(dir, true));
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+        if (!VaultFiles.isTemporary(file)) {
+          consumer.accept(new Entry(file, false));
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+        if (e instanceof NoSuchFileException) {
+          return FileVisitResult.CONTINUE; // deleted while the vault was walked
+        }
+        throw e;
+      }
+    });
+  }
+
+  // Paths of every note of the vault
+  public List<Path> notes() throws IOException {
+    List<Path> notes = new ArrayList<>();
+    walk(entry -> {
+      if (!entry.directory() && VaultFiles.isNote(entry.path())) {
+        notes.add(entry.path());
+      }
+    });
+    return notes;
+  }
+
+  //                                        Reading and writing
+
+  public String read(Path note) throws IOException {
+    return new String(Files.readAllBytes(note), StandardCharsets.UTF_8);
+  }
+
+  // Replaces the note in one step, with the durability the store's writer was made with
+  public void write(Path note, String content) throws IOException {
+    writer.write(note, content);
+  }
+
+  //                                        Names
+
+  // Path of a new note named by the user, .html is added unless the name ends with it already
+  public Path resolveNote(Path directory, String name) {
+    return resolve(directory, name.toLowerCase().endsWith(NOTE_EXTENSION) ? name : name + NOTE_EXTENSION);
+  }
+
+  public Path resolveDirectory(Path directory, String name) {
+    return resolve(directory, name);
+  }
+
+  // A name is a single element inside the vault, names such as "..", "a/b" or Skribber's own are refused with an
+  // IllegalArgumentException
+  private Path resolve(Path directory, String name) {
+    String separator = directory.getFileSystem().getSeparator();
+    if (name.isBlank() || name.equals(".") || name.equals("..") || name.contains("/") || name.contains(separator)) {
+      throw new IllegalArgumentException("Not a valid name: " + name);
+    }
+    Path resolved = directory.resolve(name); // InvalidPathException is an IllegalArgumentException too
+    if (!contains(resolved) || VaultFiles.isMetadata(resolved) || VaultFiles.isTemporary(resolved)) {
+      throw new IllegalArgumentException("Not a valid name: " + name);
+    }
+    return resolved;
+  }
+
+  public boolean contains(Path path) {
+    return path.toAbsolutePath().normalize().startsWith(absoluteVault);
+  }
+
+  // Create an empty note, FileAlreadyExistsException when the name is taken
+  public Path createNote(Path directory, String name) throws IOException {
+    return Files.createFile(resolveNote(directory, name));
+  }
+
+  public Path createDirectory(Path directory, String name) throws IOException {
+    return Files.createDirectory(resolveDirectory(directory, name));
+  }
+
+  //                                        Words
+
+  public int countWords(CharSequence html) {
+    return HtmlTokenizer.countWords(html);
+  }
+
+  public int countWords(Path note) throws IOException {
+    return countWords(read(note));
+  }
+
+  //                                        Deleting
+
+  public void delete(Path note) throws IOException {
+    Files.delete(note);
+  }
+
+  // Delete a folder and everything in it before returning, the app moves folders to the trash and purges them later
+  public void deleteDirectory(Path directory) throws IOException {
+    purge(moveToTrash(directory), () -> false, () -> {});
+  }
+
+  // Move a folder into the trash in the vault's metadata directory with a single rename, it's gone from the vault at
+  // once and nothing is left half deleted. Returns where it is now. The vault itself and folders outside of it are
+  // refused with an IllegalArgumentException.
+  public Path moveToTrash(Path directory) throws IOException {
+    Path absolute = directory.toAbsolutePath().normalize();
+    if (absolute.equals(absoluteVault) || !contains(absolute) || VaultFiles.isMetadata(absolute)) {
+      throw new IllegalArgumentException("Not a folder of the vault: " + directory);
+    }
+    Path trash = VaultFiles.metadataDirectory(vault).resolve(TRASH_DIRECTORY);
+    Files.createDirectories(trash);
+    Path trashed = trash.resolve(System.currentTimeMillis() + "-" + directory.getFileName());
+    for (int i = 1; Files.exists(trashed); i++) {
+      trashed = trash.resolve(System.currentTimeMillis() + "-" + i + "-" + directory.getFileName());
+    }
+    // the trash is in the same vault, so this is a rename and never a copy
+    Files.move(directory, trashed, StandardCopyOption.ATOMIC_MOVE);
+    return trashed;
+  }
+
+  // What's still in the trash, e.g. purges an earlier session didn't finish
+  public List<Path> trashed() throws IOException {
+    List<Path> trashed = new ArrayList<>();
+    Path trash = VaultFiles.metadataDirectory(vault).resolve(TRASH_DIRECTORY);
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(trash)) {
+      for (Path path : stream) {
+        trashed.add(path);
+      }
+    } catch (NoSuchFileException e) {
+      // nothing was ever deleted in this vault
+    }
+    return trashed;
+  }
+
+  // Delete a folder of the trash file by file, onDeleted is called for every file and folder that is gone. Stops
+  // between two files once cancelled says so, the rest stays in the trash.
+  public void purge(Path trashed, BooleanSupplier cancelled, Runnable onDeleted) throws IOException {
+    Files.walkFileTree(trashed, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+        if (cancelled.getAsBoolean()) {
+          return FileVisitResult.TERMINATE;
+        }
+        Files.deleteIfExists(file);
+        onDeleted.run();
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+        if (e != null) {
+          throw e;
+        }
+        if (cancelled.getAsBoolean()) {
+          return FileVisitResult.TERMINATE;
+        }
+        Files.deleteIfExists(dir);
+        onDeleted.run();
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+}
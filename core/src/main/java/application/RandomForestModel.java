@@ -0,0 +1,143 @@
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Random forest exported from the scikit-learn model by Find_Gesture/export_model.py.
+// All trees live in flat primitive arrays, so classifying a frame is a few array walks without any allocation.
+public class RandomForestModel {
+  private static final int MAGIC = 0x534B5246; // "SKRF"
+  private static final int VERSION = 1;
+
+  private final int featureCount;
+  private final String[] labels; // class names in the order of the probabilities
+  private final int[] roots; // first node of every tree
+  private final int[] feature; // feature a node splits on, -1 for leaves
+  private final float[] threshold; // go left when the feature is <= threshold, rounded down to float so results match
+  private final int[] left; // left child, for leaves the offset of their class probabilities
+  private final int[] right;
+  private final float[] leafProbabilities;
+
+  private RandomForestModel(int featureCount, String[] labels, int[] roots, int[] feature, float[] threshold,
+      int[] left, int[] right, float[] leafProbabilities) {
+    this.featureCount = featureCount;
+    this.labels = labels;
+    this.roots = roots;
+    this.feature = feature;
+    this.threshold = threshold;
+    this.left = left;
+    this.right = right;
+    this.leafProbabilities = leafProbabilities;
+  }
+
+  public int getFeatureCount() {
+    return featureCount;
+  }
+
+  public int getClassCount() {
+    return labels.length;
+  }
+
+  public String getLabel(int classIndex) {
+    return labels[classIndex];
+  }
+
+  // Average the leaf probabilities of every tree into probabilities and return the most likely class,
+  // the first one wins a tie like numpy's argmax does
+  public int classify(float[] features, float[] probabilities) {
+    int classCount = labels.length;
+    for (int c = 0; c < classCount; c++) {
+      probabilities[c] = 0;
+    }
+    for (int root : roots) {
+      int node = root;
+      while (feature[node] >= 0) {
+        node = features[feature[node]] <= threshold[node] ? left[node] : right[node];
+      }
+      int offset = left[node];
+      for (int c = 0; c < classCount; c++) {
+        probabilities[c] += leafProbabilities[offset + c];
+      }
+    }
+    int best = 0;
+    for (int c = 0; c < classCount; c++) {
+      probabilities[c] /= roots.length;
+      if (probabilities[c] > probabilities[best]) {
+        best = c;
+      }
+    }
+    return best;
+  }
+
+  // Layout, big endian: magic, version, feature count, class count, class labels, tree count, then per tree its
+  // node count and nodes of left, right, feature, threshold, with the class probabilities after each leaf.
+  // Child indices are relative to the tree.
+  public static RandomForestModel read(Path path) throws IOException {
+    try (InputStream stream = Files.newInputStream(path);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Not a Skribber gesture model: " + path);
+      }
+      int featureCount = in.readInt();
+      String[] labels = new String[in.readInt()];
+      for (int c = 0; c < labels.length; c++) {
+        labels[c] = in.readUTF();
+      }
+
+      int[] roots = new int[in.readInt()];
+      int[] feature = new int[1024];
+      float[] threshold = new float[1024];
+      int[] left = new int[1024];
+      int[] right = new int[1024];
+      float[] leafProbabilities = new float[1024];
+      int nodes = 0;
+      int leafValues = 0;
+      for (int tree = 0; tree < roots.length; tree++) {
+        int nodeCount = in.readInt();
+        roots[tree] = nodes;
+        if (nodes + nodeCount > feature.length) {
+          int capacity = Math.max(feature.length * 2, nodes + nodeCount);
+          feature = Arrays.copyOf(feature, capacity);
+          threshold = Arrays.copyOf(threshold, capacity);
+          left = Arrays.copyOf(left, capacity);
+          right = Arrays.copyOf(right, capacity);
+        }
+        for (int i = 0; i < nodeCount; i++) {
+          int node = nodes + i;
+          int leftChild = in.readInt();
+          int rightChild = in.readInt();
+          feature[node] = in.readInt();
+          threshold[node] = in.readFloat();
+          if (feature[node] >= featureCount) {
+            throw new IOException("Gesture model splits on unknown feature " + feature[node]);
+          }
+          if (feature[node] < 0) {
+            feature[node] = -1;
+            if (leafValues + labels.length > leafProbabilities.length) {
+              leafProbabilities = Arrays.copyOf(leafProbabilities, leafProbabilities.length * 2 + labels.length);
+            }
+            left[node] = leafValues;
+            for (int c = 0; c < labels.length; c++) {
+              leafProbabilities[leafValues++] = in.readFloat();
+            }
+          } else {
+            if (leftChild <= i || rightChild <= i || leftChild >= nodeCount || rightChild >= nodeCount) {
+              throw new IOException("Gesture model has a malformed tree " + tree); // children always follow their parent
+            }
+            left[node] = nodes + leftChild;
+            right[node] = nodes + rightChild;
+          }
+        }
+        nodes += nodeCount;
+      }
+      return new RandomForestModel(featureCount, labels, roots, Arrays.copyOf(feature, nodes),
+          Arrays.copyOf(threshold, nodes), Arrays.copyOf(left, nodes),
+          Arrays.copyOf(right, nodes), Arrays.copyOf(leafProbabilities, leafValues));
+    }
+  }
+}
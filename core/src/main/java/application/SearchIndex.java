@@ -0,0 +1,426 @@
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+// Inverted index over the notes of a vault, ranked with BM25. Posting lists are primitive int arrays
+// and the index is stored as a compact binary file so it doesn't have to be rebuilt on every start.
+// Not thread safe, SearchService confines it to a single thread.
+public class SearchIndex {
+  private static final int MAGIC = 0x534b5849; // "SKXI"
+  private static final int VERSION = 1;
+
+  private static final float K1 = 1.2f; // BM25 term frequency saturation
+  private static final float B = 0.75f; // BM25 document length normalization
+  private static final int MAX_PREFIX_TERMS = 64; // expansions of the last, partially typed query word
+  private static final int MIN_PREFIX_LENGTH = 2; // a single typed letter only matches itself
+  private static final int MAX_TERM_LENGTH = 64;
+
+  // ranked result, path is relative to the vault with '/' separators
+  public record Hit(String path, float score) {}
+
+  // documents by id, ids of removed or replaced notes are tombstoned until the next compaction
+  private String[] docPaths = new String[256];
+  private long[] docModified = new long[256];
+  private long[] docSizes = new long[256];
+  private int[] docLengths = new int[256];
+  private final BitSet deleted = new BitSet();
+  private int docCount; // ids handed out so far
+  private int liveDocs;
+  private long totalLength; // words in all live documents
+  private final Map<String, Integer> docIds = new HashMap<>();
+
+  // terms are kept sorted so the last query word can match as a prefix
+  private final TreeMap<String, Integer> termIds = new TreeMap<>();
+  private int[][] postingDocs = new int[1024][];
+  private int[][] postingFreqs = new int[1024][];
+  private int[] postingLengths = new int[1024];
+  private int termCount;
+
+  // scratch space reused between documents and queries
+  private final Map<String, int[]> documentTerms = new HashMap<>();
+  private final HtmlTokenizer tokenizer = new HtmlTokenizer(this::addWord);
+  private final char[] termBuffer = new char[MAX_TERM_LENGTH];
+  private final char[] readBuffer = new char[8192];
+  private int documentLength;
+  private float[] scores = new float[0];
+  private int[] matchedTerms = new int[0];
+  private int[] touchedDocs = new int[0];
+
+  public int size() {
+    return liveDocs;
+  }
+
+  public boolean isCurrent(String path, long modified, long size) {
+    Integer id = docIds.get(path);
+    return id != null && docModified[id] == modified && docSizes[id] == size;
+  }
+
+  public Set<String> paths() {
+    return new HashSet<>(docIds.keySet());
+  }
+
+  // Index a note from memory, e.g. right after it was saved
+  public void put(String path, long modified, long size, CharSequence content) {
+    startDocument();
+    tokenizer.feed(content);
+    finishDocument(path, modified, size);
+  }
+
+  // Index a note streamed from disk
+  public void put(String path, long modified, long size, Reader content) throws IOException {
+    startDocument();
+    int read;
+    while ((read = content.read(readBuffer)) != -1) {
+      tokenizer.feed(readBuffer, 0, read);
+    }
+    finishDocument(path, modified, size);
+  }
+
+  public void remove(String path) {
+    Integer id = docIds.remove(path);
+    if (id != null) {
+      deleted.set(id);
+      liveDocs--;
+      totalLength -= docLengths[id];
+    }
+  }
+
+  // remove every note inside a folder
+  public void removeUnder(String directory) {
+    String prefix = directory.isEmpty() ? "" : directory + "/";
+    for (String path : paths()) {
+      if (path.startsWith(prefix)) {
+        remove(path);
+      }
+    }
+  }
+
+  // Notes containing every query word, the last word also matches as a prefix while it's being typed
+  public List<Hit> search(String query, int limit) {
+    List<String> queryTerms = new ArrayList<>();
+    char[] chars = query.toCharArray();
+    forEachTerm(chars, chars.length, queryTerms::add);
+    if (queryTerms.isEmpty() || liveDocs == 0 || limit <= 0) {
+      return List.of();
+    }
+
+    if (scores.length < docCount) {
+      scores = new float[docPaths.length];
+      matchedTerms = new int[docPaths.length];
+      touchedDocs = new int[docPaths.length];
+    }
+    int touched = 0;
+    float averageLength = Math.max(1f, (float) totalLength / liveDocs);
+
+    for (int q = 0; q < queryTerms.size(); q++) {
+      String term = queryTerms.get(q);
+      Iterable<Integer> ids;
+      if (q == queryTerms.size() - 1 && term.length() >= MIN_PREFIX_LENGTH) {
+        ids = termIds.subMap(term, true, term + Character.MAX_VALUE, true).values();
+      } else {
+        Integer id = termIds.get(term);
+        ids = id != null ? List.of(id) : List.of();
+      }
+
+      int expansions = 0;
+      for (int termId : ids) {
+        if (expansions++ == MAX_PREFIX_TERMS) {
+          break;
+        }
+        int[] docs = postingDocs[termId];
+        int[] freqs = postingFreqs[termId];
+        int length = postingLengths[termId];
+        float idf = (float) Math.log(1 + (liveDocs - length + 0.5) / (length + 0.5));
+        for (int i = 0; i < length; i++) {
+          int doc = docs[i];
+          if (deleted.get(doc) || matchedTerms[doc] < q) {
+            continue; // the document already missed an earlier query word
+          }
+          if (matchedTerms[doc] == q) {
+            matchedTerms[doc] = q + 1;
+            if (q == 0) {
+              touchedDocs[touched++] = doc;
+            }
+          }
+          float tf = freqs[i];
+          float norm = K1 * (1 - B + B * docLengths[doc] / averageLength);
+          scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+        }
+      }
+    }
+
+    // keep the best hits in a small array sorted by descending score
+    int[] best = new int[limit];
+    int bestCount = 0;
+    for (int i = 0; i < touched; i++) {
+      int doc = touchedDocs[i];
+      if (matchedTerms[doc] == queryTerms.size()) {
+        float score = scores[doc];
+        if (bestCount < limit || score > scores[best[bestCount - 1]]) {
+          int position = bestCount < limit ? bestCount++ : bestCount - 1;
+          while (position > 0 && scores[best[position - 1]] < score) {
+            best[position] = best[position - 1];
+            position--;
+          }
+          best[position] = doc;
+        }
+      }
+    }
+    List<Hit> hits = new ArrayList<>(bestCount);
+    for (int i = 0; i < bestCount; i++) {
+      hits.add(new Hit(docPaths[best[i]], scores[best[i]]));
+    }
+
+    for (int i = 0; i < touched; i++) {
+      scores[touchedDocs[i]] = 0;
+      matchedTerms[touchedDocs[i]] = 0;
+    }
+    return hits;
+  }
+
+  // Drop tombstoned documents and renumber the rest
+  public void compact() {
+    if (deleted.isEmpty()) {
+      return;
+    }
+    int[] remap = new int[docCount];
+    int next = 0;
+    for (int id = 0; id < docCount; id++) {
+      if (deleted.get(id)) {
+        remap[id] = -1;
+      } else {
+        remap[id] = next;
+        docPaths[next] = docPaths[id];
+        docModified[next] = docModified[id];
+        docSizes[next] = docSizes[id];
+        docLengths[next] = docLengths[id];
+        docIds.put(docPaths[next], next);
+        next++;
+      }
+    }
+    Arrays.fill(docPaths, next, docCount, null);
+    docCount = next;
+    deleted.clear();
+
+    for (int termId = 0; termId < termCount; termId++) {
+      int[] docs = postingDocs[termId];
+      int[] freqs = postingFreqs[termId];
+      int kept = 0;
+      for (int i = 0; i < postingLengths[termId]; i++) {
+        int doc = remap[docs[i]];
+        if (doc >= 0) {
+          docs[kept] = doc;
+          freqs[kept] = freqs[i];
+          kept++;
+        }
+      }
+      postingLengths[termId] = kept;
+    }
+  }
+
+  public boolean needsCompaction() {
+    return deleted.cardinality() > liveDocs / 4;
+  }
+
+  // Store the index atomically, terms without live postings are dropped
+  public void write(Path file) throws IOException {
+    compact();
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(docCount);
+      for (int id = 0; id < docCount; id++) {
+        out.writeUTF(docPaths[id]);
+        out.writeLong(docModified[id]);
+        out.writeLong(docSizes[id]);
+        writeVarInt(out, docLengths[id]);
+      }
+
+      int liveTerms = 0;
+      for (int termId : termIds.values()) {
+        if (postingLengths[termId] > 0) {
+          liveTerms++;
+        }
+      }
+      out.writeInt(liveTerms);
+      for (Map.Entry<String, Integer> term : termIds.entrySet()) {
+        int termId = term.getValue();
+        int length = postingLengths[termId];
+        if (length == 0) {
+          continue;
+        }
+        out.writeUTF(term.getKey());
+        writeVarInt(out, length);
+        int previous = 0;
+        for (int i = 0; i < length; i++) {
+          // doc ids are ascending within a posting list, so deltas stay small
+          writeVarInt(out, postingDocs[termId][i] - previous);
+          writeVarInt(out, postingFreqs[termId][i]);
+          previous = postingDocs[termId][i];
+        }
+      }
+    }
+    try {
+      Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  public static SearchIndex read(Path file) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Unsupported search index " + file);
+      }
+      SearchIndex index = new SearchIndex();
+      int documents = in.readInt();
+      for (int i = 0; i < documents; i++) {
+        String path = in.readUTF();
+        int id = index.newDocument(path, in.readLong(), in.readLong());
+        index.docLengths[id] = readVarInt(in);
+        index.totalLength += index.docLengths[id];
+      }
+
+      int terms = in.readInt();
+      for (int i = 0; i < terms; i++) {
+        int termId = index.termId(in.readUTF());
+        int length = readVarInt(in);
+        int[] docs = new int[length];
+        int[] freqs = new int[length];
+        int doc = 0;
+        for (int p = 0; p < length; p++) {
+          doc += readVarInt(in);
+          docs[p] = doc;
+          freqs[p] = readVarInt(in);
+        }
+        index.postingDocs[termId] = docs;
+        index.postingFreqs[termId] = freqs;
+        index.postingLengths[termId] = length;
+      }
+      return index;
+    }
+  }
+
+  private void startDocument() {
+    documentTerms.clear();
+    documentLength = 0;
+    tokenizer.reset();
+  }
+
+  private void finishDocument(String path, long modified, long size) {
+    tokenizer.finish();
+    remove(path);
+    int id = newDocument(path, modified, size);
+    docLengths[id] = documentLength;
+    totalLength += documentLength;
+    for (Map.Entry<String, int[]> term : documentTerms.entrySet()) {
+      addPosting(termId(term.getKey()), id, term.getValue()[0]);
+    }
+    documentTerms.clear();
+  }
+
+  private int newDocument(String path, long modified, long size) {
+    if (docCount == docPaths.length) {
+      int capacity = docCount * 2;
+      docPaths = Arrays.copyOf(docPaths, capacity);
+      docModified = Arrays.copyOf(docModified, capacity);
+      docSizes = Arrays.copyOf(docSizes, capacity);
+      docLengths = Arrays.copyOf(docLengths, capacity);
+    }
+    int id = docCount++;
+    docPaths[id] = path;
+    docModified[id] = modified;
+    docSizes[id] = size;
+    docIds.put(path, id);
+    liveDocs++;
+    return id;
+  }
+
+  private int termId(String term) {
+    Integer id = termIds.get(term);
+    if (id != null) {
+      return id;
+    }
+    if (termCount == postingDocs.length) {
+      int capacity = termCount * 2;
+      postingDocs = Arrays.copyOf(postingDocs, capacity);
+      postingFreqs = Arrays.copyOf(postingFreqs, capacity);
+      postingLengths = Arrays.copyOf(postingLengths, capacity);
+    }
+    postingDocs[termCount] = new int[4];
+    postingFreqs[termCount] = new int[4];
+    termIds.put(term, termCount);
+    return termCount++;
+  }
+
+  private void addPosting(int termId, int doc, int freq) {
+    int length = postingLengths[termId];
+    if (length == postingDocs[termId].length) {
+      postingDocs[termId] = Arrays.copyOf(postingDocs[termId], length * 2);
+      postingFreqs[termId] = Arrays.copyOf(postingFreqs[termId], length * 2);
+    }
+    postingDocs[termId][length] = doc;
+    postingFreqs[termId][length] = freq;
+    postingLengths[termId] = length + 1;
+  }
+
+  // words from the tokenizer are split further into lower case runs of letters and digits
+  private void addWord(char[] word, int length) {
+    forEachTerm(word, length, term -> {
+      documentTerms.computeIfAbsent(term, _ -> new int[1])[0]++;
+      documentLength++;
+    });
+  }
+
+  private void forEachTerm(char[] chars, int length, Consumer<String> action) {
+    int termLength = 0;
+    for (int i = 0; i <= length; i++) {
+      if (i < length && Character.isLetterOrDigit(chars[i])) {
+        if (termLength < MAX_TERM_LENGTH) {
+          termBuffer[termLength++] = Character.toLowerCase(chars[i]);
+        }
+      } else if (termLength > 0) {
+        action.accept(new String(termBuffer, 0, termLength));
+        termLength = 0;
+      }
+    }
+  }
+
+  private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+    while ((value & ~0x7f) != 0) {
+      out.writeByte((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private static int readVarInt(DataInputStream in) throws IOException {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+  }
+}
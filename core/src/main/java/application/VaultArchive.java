@@ -0,0 +1,547 @@
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+// A whole vault as a single zip, so backing it up or moving it copies one file instead of thousands of small notes.
+// Files are split into chunks that are deflated on all cores, each chunk primed with the end of the one before, and
+// written in order through a file channel, the way pigz does it. Entries carry their CRC and sizes in a data
+// descriptor, so nothing has to be seeked back to, and ZIP64 records are added once a vault needs them. Skribber's
+// metadata stays out of the archive, the catalog and the search index are rebuilt and the history starts anew.
+public class VaultArchive {
+  private static final int CHUNK_SIZE = 256 * 1024; // uncompressed bytes deflated by one task
+  private static final int DICTIONARY_SIZE = 32 * 1024; // the deflate window, primed with the end of the last chunk
+  private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+  private static final long ZIP64_LIMIT = 0xFFFFFFFFL; // sizes and offsets from here on need ZIP64 records
+  private static final int ZIP64_ENTRY_LIMIT = 0xFFFF;
+
+  private static final int LOCAL_HEADER = 0x04034b50;
+  private static final int DATA_DESCRIPTOR = 0x08074b50;
+  private static final int CENTRAL_HEADER = 0x02014b50;
+  private static final int ZIP64_END = 0x06064b50;
+  private static final int ZIP64_LOCATOR = 0x07064b50;
+  private static final int END = 0x06054b50;
+  private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+  private static final int FLAG_UTF8 = 0x0800;
+  private static final int VERSION = 20; // deflate and folders
+  private static final int VERSION_ZIP64 = 45;
+  private static final int DIRECTORY_ATTRIBUTE = 0x10; // MS-DOS directory flag, in the external attributes
+  private static final Pattern DRIVE_LETTER = Pattern.compile("[A-Za-z]:");
+
+  // How far a pack or unpack is, in uncompressed bytes written or archive bytes read
+  public interface Listener {
+    void progress(long done, long total);
+  }
+
+  // entries is what was packed or the files that were unpacked, skipped the files of an unpack that existed already
+  public record Result(int entries, int skipped) {}
+
+  private final ExecutorService compressor;
+  private final int level;
+  private final int maxChunksInFlight; // bounds the memory of chunks read or deflated but not written yet
+  private final ThreadLocal<Deflater> deflaters;
+
+  public VaultArchive(ExecutorService compressor, int parallelism, int level) {
+    this.compressor = compressor;
+    this.level = level;
+    this.maxChunksInFlight = 4 * parallelism;
+    this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level, true));
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  //                                        Packing
+
+  // Pack the notes and folders of a vault into a zip. It's written next to the archive first and renamed over it when
+  // it's complete, so a cancelled or failed pack leaves nothing behind. Throws CancellationException once cancelled.
+  public Result pack(NoteStore store, Path archive, Listener listener, BooleanSupplier cancelled) throws IOException {
+    List<Item> items = new ArrayList<>();
+    long total = 0;
+    store.walk(entry -> {
+      String name = VaultFiles.relativeName(store.getVault(), entry.path());
+      items.add(new Item(entry.path(), entry.directory() ? name + "/" : name, entry.directory()));
+    });
+    for (Item item : items) {
+      if (!item.directory) {
+        item.readAttributes();
+        total += item.expectedSize;
+      }
+    }
+
+    Path temp = archive.resolveSibling("." + archive.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      Writer writer = new Writer(channel, listener, total);
+      try {
+        for (Item item : items) {
+          if (cancelled.getAsBoolean()) {
+            throw new CancellationException();
+          }
+          if (item.directory) {
+            writer.queue(() -> writer.writeDirectory(item));
+          } else {
+            packFile(item, writer, cancelled);
+          }
+        }
+        writer.drain(0);
+        writer.writeCentralDirectory(items);
+        writer.flush();
+        channel.force(true);
+      } finally {
+        writer.cancelPending();
+      }
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+    try {
+      Files.move(temp, archive, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      Files.move(temp, archive, StandardCopyOption.REPLACE_EXISTING); // e.g. a file system without atomic moves
+    }
+    return new Result(items.size(), 0);
+  }
+
+  // Read a file chunk by chunk on this thread and deflate the chunks on the compressor, the CRC is computed here while
+  // the chunks pass by
+  private void packFile(Item item, Writer writer, BooleanSupplier cancelled) throws IOException {
+    writer.queue(() -> writer.writeLocalHeader(item));
+    CRC32 crc = new CRC32();
+    long size = 0;
+    try (FileChannel channel = FileChannel.open(item.path, StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+      byte[] dictionary = null;
+      byte[] chunk = readChunk(channel, buffer);
+      while (true) {
+        if (cancelled.getAsBoolean()) {
+          throw new CancellationException();
+        }
+        // a full chunk may be the last one, that's only known once the next read comes back empty
+        byte[] next = chunk.length == CHUNK_SIZE ? readChunk(channel, buffer) : null;
+        boolean last = next == null || next.length == 0;
+        crc.update(chunk);
+        size += chunk.length;
+        byte[] input = chunk;
+        byte[] primer = dictionary;
+        CompletableFuture<byte[]> deflated = CompletableFuture.supplyAsync(() -> deflate(input, primer, last),
+            compressor);
+        writer.drain(maxChunksInFlight - 1);
+        writer.queueChunk(item, deflated, input.length);
+        if (last) {
+          break;
+        }
+        dictionary = chunk;
+        chunk = next;
+      }
+    }
+    long crcValue = crc.getValue();
+    long finalSize = size;
+    writer.queue(() -> writer.writeDataDescriptor(item, crcValue, finalSize));
+  }
+
+  private static byte[] readChunk(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.clear();
+    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+      // fill the chunk, a read may return less than asked for
+    }
+    buffer.flip();
+    byte[] chunk = new byte[buffer.remaining()];
+    buffer.get(chunk);
+    return chunk;
+  }
+
+  // Raw deflate of one chunk. Chunks but the last end on a byte boundary with a sync flush, so the deflated chunks
+  // put one after another are a single deflate stream.
+  private byte[] deflate(byte[] input, byte[] dictionary, boolean last) {
+    Deflater deflater = deflaters.get();
+    deflater.reset();
+    if (dictionary != null) {
+      int length = Math.min(DICTIONARY_SIZE, dictionary.length);
+      deflater.setDictionary(dictionary, dictionary.length - length, length);
+    }
+    deflater.setInput(input);
+    if (last) {
+      deflater.finish();
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 2 + 64);
+    byte[] buffer = new byte[16 * 1024];
+    while (true) {
+      int length = last ? deflater.deflate(buffer) : deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+      output.write(buffer, 0, length);
+      if (last ? deflater.finished() : length < buffer.length) {
+        return output.toByteArray();
+      }
+    }
+  }
+
+  // A file or folder of the archive as it's written
+  private static final class Item {
+    final Path path;
+    final byte[] name;
+    final boolean directory;
+    long expectedSize;
+    boolean zip64; // sizes that may not fit 32 bits, announced in the local header
+    int dosTime;
+    long offset;
+    long crc;
+    long size;
+    long compressedSize;
+
+    Item(Path path, String name, boolean directory) {
+      this.path = path;
+      this.name = name.getBytes(StandardCharsets.UTF_8);
+      this.directory = directory;
+      dosTime = dosTime(System.currentTimeMillis());
+    }
+
+    void readAttributes() throws IOException {
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      expectedSize = attributes.size();
+      zip64 = expectedSize >= ZIP64_LIMIT;
+      dosTime = dosTime(attributes.lastModifiedTime().toMillis());
+    }
+  }
+
+  // An action of the writer, run in the order it was queued
+  private interface Write {
+    void run() throws IOException;
+  }
+
+  // Writes a deflated chunk, which may still be compressed
+  private record ChunkWrite(Write write) implements Write {
+    @Override
+    public void run() throws IOException {
+      write.run();
+    }
+  }
+
+  // Writes the archive in order through a buffer, chunks are waited for once the window of chunks in flight is full
+  private final class Writer {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final Deque<Write> queue = new ArrayDeque<>();
+    private final Deque<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>();
+    private final Listener listener;
+    private final long total;
+    private long position; // bytes written to the archive so far
+    private long done; // uncompressed bytes written
+
+    Writer(FileChannel channel, Listener listener, long total) {
+      this.channel = channel;
+      this.listener = listener;
+      this.total = total;
+    }
+
+    void queue(Write write) throws IOException {
+      if (queue.isEmpty()) {
+        write.run(); // nothing before it to wait for
+      } else {
+        queue.add(write);
+      }
+    }
+
+    void queueChunk(Item item, CompletableFuture<byte[]> deflated, int length) {
+      inFlight.add(deflated);
+      queue.add(new ChunkWrite(() -> {
+        byte[] bytes = join(inFlight.remove());
+        put(bytes);
+        item.compressedSize += bytes.length;
+        done += length;
+        listener.progress(done, total);
+      }));
+    }
+
+    // Write what's queued, chunks that are still being deflated are only waited for while more than keep are in flight
+    void drain(int keep) throws IOException {
+      while (!queue.isEmpty()) {
+        if (queue.peek() instanceof ChunkWrite && inFlight.size() <= keep && !inFlight.peek().isDone()) {
+          return;
+        }
+        queue.remove().run();
+      }
+    }
+
+    void cancelPending() {
+      for (CompletableFuture<byte[]> deflated : inFlight) {
+        deflated.cancel(false);
+      }
+    }
+
+    void writeDirectory(Item item) throws IOException {
+      item.offset = position;
+      putLocalHeader(item, FLAG_UTF8, ZipEntry.STORED);
+    }
+
+    void writeLocalHeader(Item item) throws IOException {
+      item.offset = position;
+      putLocalHeader(item, FLAG_UTF8 | FLAG_DATA_DESCRIPTOR, ZipEntry.DEFLATED);
+    }
+
+    // CRC and sizes come after the data, 64 bit sizes when they need it, which is how readers tell them apart
+    void writeDataDescriptor(Item item, long crc, long size) throws IOException {
+      item.crc = crc;
+      item.size = size;
+      item.zip64 |= size >= ZIP64_LIMIT || item.compressedSize >= ZIP64_LIMIT;
+      ensure(24);
+      buffer.putInt(DATA_DESCRIPTOR).putInt((int) crc);
+      if (item.zip64) {
+        buffer.putLong(item.compressedSize).putLong(size);
+      } else {
+        buffer.putInt((int) item.compressedSize).putInt((int) size);
+      }
+      position += item.zip64 ? 24 : 16;
+    }
+
+    private void putLocalHeader(Item item, int flags, int method) throws IOException {
+      int extra = item.zip64 ? 20 : 0;
+      ensure(30 + item.name.length + extra);
+      buffer.putInt(LOCAL_HEADER).putShort((short) (item.zip64 ? VERSION_ZIP64 : VERSION)).putShort((short) flags)
+          .putShort((short) method).putInt(item.dosTime).putInt(0).putInt(item.zip64 ? -1 : 0)
+          .putInt(item.zip64 ? -1 : 0).putShort((short) item.name.length).putShort((short) extra).put(item.name);
+      if (item.zip64) {
+        buffer.putShort((short) 1).putShort((short) 16).putLong(0).putLong(0); // the sizes are in the descriptor
+      }
+      position += 30 + item.name.length + extra;
+    }
+
+    void writeCentralDirectory(List<Item> items) throws IOException {
+      long start = position;
+      for (Item item : items) {
+        boolean bigSize = item.size >= ZIP64_LIMIT;
+        boolean bigCompressed = item.compressedSize >= ZIP64_LIMIT;
+        boolean bigOffset = item.offset >= ZIP64_LIMIT;
+        int extra = (bigSize ? 8 : 0) + (bigCompressed ? 8 : 0) + (bigOffset ? 8 : 0);
+        extra = extra == 0 ? 0 : extra + 4;
+        int version = extra > 0 || item.zip64 ? VERSION_ZIP64 : VERSION;
+        ensure(46 + item.name.length + extra);
+        buffer.putInt(CENTRAL_HEADER).putShort((short) version).putShort((short) version)
+            .putShort((short) (item.directory ? FLAG_UTF8 : FLAG_UTF8 | FLAG_DATA_DESCRIPTOR))
+            .putShort((short) (item.directory ? ZipEntry.STORED : ZipEntry.DEFLATED)).putInt(item.dosTime)
+            .putInt((int) item.crc).putInt(bigCompressed ? -1 : (int) item.compressedSize)
+            .putInt(bigSize ? -1 : (int) item.size).putShort((short) item.name.length).putShort((short) extra)
+            .putShort((short) 0).putShort((short) 0).putShort((short) 0)
+            .putInt(item.directory ? DIRECTORY_ATTRIBUTE : 0).putInt(bigOffset ? -1 : (int) item.offset)
+            .put(item.name);
+        if (extra > 0) {
+          buffer.putShort((short) 1).putShort((short) (extra - 4));
+          if (bigSize) {
+            buffer.putLong(item.size);
+          }
+          if (bigCompressed) {
+            buffer.putLong(item.compressedSize);
+          }
+          if (bigOffset) {
+            buffer.putLong(item.offset);
+          }
+        }
+        position += 46 + item.name.length + extra;
+      }
+      long length = position - start;
+      if (items.size() >= ZIP64_ENTRY_LIMIT || start >= ZIP64_LIMIT || length >= ZIP64_LIMIT) {
+        long end = position;
+        ensure(56 + 20);
+        buffer.putInt(ZIP64_END).putLong(44).putShort((short) VERSION_ZIP64).putShort((short) VERSION_ZIP64)
+            .putInt(0).putInt(0).putLong(items.size()).putLong(items.size()).putLong(length).putLong(start);
+        buffer.putInt(ZIP64_LOCATOR).putInt(0).putLong(end).putInt(1);
+        position += 56 + 20;
+      }
+      ensure(22);
+      int entries = Math.min(items.size(), ZIP64_ENTRY_LIMIT);
+      buffer.putInt(END).putShort((short) 0).putShort((short) 0).putShort((short) entries).putShort((short) entries)
+          .putInt(length >= ZIP64_LIMIT ? -1 : (int) length).putInt(start >= ZIP64_LIMIT ? -1 : (int) start)
+          .putShort((short) 0);
+      position += 22;
+    }
+
+    private void put(byte[] bytes) throws IOException {
+      if (bytes.length > buffer.remaining()) {
+        flush();
+        if (bytes.length > buffer.capacity()) {
+          writeFully(ByteBuffer.wrap(bytes));
+          position += bytes.length;
+          return;
+        }
+      }
+      buffer.put(bytes);
+      position += bytes.length;
+    }
+
+    private void ensure(int length) throws IOException {
+      if (buffer.remaining() < length) {
+        flush();
+      }
+    }
+
+    void flush() throws IOException {
+      buffer.flip();
+      writeFully(buffer);
+      buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+    }
+  }
+
+  private static byte[] join(CompletableFuture<byte[]> deflated) throws IOException {
+    try {
+      return deflated.join();
+    } catch (CompletionException e) {
+      throw new IOException("Couldn't compress a chunk", e.getCause());
+    }
+  }
+
+  // MS-DOS date and time, the date in the high half, two second precision
+  private static int dosTime(long millis) {
+    LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    if (time.getYear() < 1980) {
+      return (1 << 21) | (1 << 16); // 1980-01-01, the earliest it can hold
+    }
+    return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+        | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+  }
+
+  //                                        Unpacking
+
+  // Unpack an archive into a folder as it's read. Every file is written next to its place and renamed into it, files
+  // that exist already are kept and counted as skipped. onEntry is called for every file and folder that was created,
+  // parents first. Entries that would land outside the folder or in Skribber's metadata fail the whole unpack with a
+  // ZipException before anything is written for them. Throws CancellationException once cancelled, what was unpacked
+  // until then stays.
+  public Result unpack(Path archive, Path target, Listener listener, BooleanSupplier cancelled,
+      Consumer<NoteStore.Entry> onEntry) throws IOException {
+    Path root = target.toAbsolutePath().normalize();
+    Files.createDirectories(root);
+    int entries = 0;
+    int skipped = 0;
+    try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ);
+        ZipInputStream zip = new ZipInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024),
+            StandardCharsets.UTF_8)) {
+      long total = channel.size();
+      ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        if (cancelled.getAsBoolean()) {
+          throw new CancellationException();
+        }
+        Path path = resolveEntry(root, entry.getName());
+        if (entry.isDirectory()) {
+          createDirectories(root, path, onEntry);
+        } else if (Files.exists(path)) {
+          skipped++;
+        } else {
+          createDirectories(root, path.getParent(), onEntry);
+          unpackFile(zip, path, entry.getLastModifiedTime(), buffer);
+          onEntry.accept(new NoteStore.Entry(path, false));
+          entries++;
+        }
+        listener.progress(channel.position(), total);
+      }
+    }
+    return new Result(entries, skipped);
+  }
+
+  private static void unpackFile(InputStream zip, Path path, FileTime modified, ByteBuffer buffer) throws IOException {
+    Path temp = path.resolveSibling("." + path.getFileName() + ".tmp");
+    try {
+      ReadableByteChannel input = Channels.newChannel(zip); // not closed, that would close the archive
+      try (FileChannel output = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+        buffer.clear();
+        while (input.read(buffer) >= 0) {
+          buffer.flip();
+          while (buffer.hasRemaining()) {
+            output.write(buffer);
+          }
+          buffer.clear();
+        }
+      }
+      if (modified != null) {
+        Files.setLastModifiedTime(temp, modified);
+      }
+      Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  // Where an entry goes, the zip slip guard: absolute names, drive letters, ".." and Skribber's metadata folder at the
+  // top are refused. Other names are kept as they are, "10:30.html" is a fine note on Linux and macOS, and a backslash
+  // only separates folders where the file system says so.
+  private static Path resolveEntry(Path root, String name) throws ZipException {
+    String separator = root.getFileSystem().getSeparator();
+    String normalized = separator.equals("/") ? name : name.replace(separator, "/");
+    if (normalized.startsWith("/") || DRIVE_LETTER.matcher(normalized).lookingAt()) {
+      throw new ZipException("Entry outside the target folder: " + name);
+    }
+    Path path = root;
+    boolean first = true;
+    for (String element : normalized.split("/")) {
+      if (element.isEmpty() || element.equals(".")) {
+        continue;
+      }
+      if (element.equals("..") || (first && element.equals(VaultFiles.METADATA_DIRECTORY))) {
+        throw new ZipException("Entry outside the target folder: " + name);
+      }
+      try {
+        path = path.resolve(element);
+      } catch (InvalidPathException e) {
+        throw new ZipException("Entry name not valid here: " + name);
+      }
+      first = false;
+    }
+    if (path.equals(root) || !path.normalize().startsWith(root)) {
+      throw new ZipException("Entry outside the target folder: " + name);
+    }
+    return path;
+  }
+
+  // Create the folders down to a directory of the target, reporting the ones that didn't exist
+  private static void createDirectories(Path root, Path directory, Consumer<NoteStore.Entry> onEntry)
+      throws IOException {
+    if (directory.equals(root) || Files.isDirectory(directory)) {
+      return;
+    }
+    createDirectories(root, directory.getParent(), onEntry);
+    Files.createDirectory(directory);
+    onEntry.accept(new NoteStore.Entry(directory, true));
+  }
+}
@@ -0,0 +1,290 @@
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Metadata of every note and folder of a vault, kept in the vault's metadata directory so the next launch knows the
+// vault without walking it. Stored as a snapshot plus an append-only log of the changes since, which is folded into
+// a new snapshot once it grows. Paths are vault relative with '/' separators, the vault itself is "".
+// Thread safe, the FX thread lists directories while the catalog thread keeps it up to date.
+public class VaultCatalog {
+  private static final String SNAPSHOT_FILE = "catalog.snap";
+  private static final String LOG_FILE = "catalog.log";
+  private static final int SNAPSHOT_MAGIC = 0x534b4353; // "SKCS"
+  private static final int LOG_MAGIC = 0x534b434c; // "SKCL"
+  private static final int VERSION = 1;
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 2;
+  private static final int MIN_COMPACTION_RECORDS = 1024; // the log may also grow to half the size of the catalog
+
+  // A note or folder as it was last seen, words and title are only known for notes
+  public record Entry(String path, boolean directory, long size, long modified, int words, String title) {}
+
+  // A put of entry, or the removal of removedPath and everything below it
+  private record Change(Entry entry, String removedPath) {}
+
+  private final Path vault;
+  private final Path snapshotFile;
+  private final Path logFile;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final Map<String, Set<String>> children = new HashMap<>(); // directory -> paths of its direct children
+  private final List<Change> pending = new ArrayList<>(); // changes not in the log yet, in order
+  private int logRecords; // records in the log file on disk
+
+  private VaultCatalog(Path vault) {
+    this.vault = vault;
+    Path metadata = VaultFiles.metadataDirectory(vault);
+    this.snapshotFile = metadata.resolve(SNAPSHOT_FILE);
+    this.logFile = metadata.resolve(LOG_FILE);
+  }
+
+  // Read the catalog of a vault, an empty catalog when there is none yet or it can't be read
+  public static VaultCatalog open(Path vault) {
+    VaultCatalog catalog = new VaultCatalog(vault);
+    boolean intact;
+    try {
+      catalog.readSnapshot();
+      intact = catalog.replayLog();
+    } catch (IOException e) {
+      e.printStackTrace(); // rebuilt by the next reconcile
+      catalog.entries.clear();
+      catalog.children.clear();
+      intact = false;
+    }
+    if (!intact) {
+      try {
+        catalog.compact(); // appending after a cut off or unreadable log would hide everything that follows
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    return catalog;
+  }
+
+  public Path getVault() {
+    return vault;
+  }
+
+  public synchronized Entry get(String path) {
+    return entries.get(path);
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized boolean isCurrent(String path, long modified, long size) {
+    Entry entry = entries.get(path);
+    return entry != null && entry.modified() == modified && entry.size() == size;
+  }
+
+  // Direct children of a directory as last seen, empty when it was never catalogued
+  public synchronized List<Entry> list(String directory) {
+    Set<String> names = children.get(directory);
+    if (names == null) {
+      return List.of();
+    }
+    List<Entry> listed = new ArrayList<>(names.size());
+    for (String name : names) {
+      listed.add(entries.get(name));
+    }
+    return listed;
+  }
+
+  // Paths at or below a directory, "" for the whole vault
+  public synchronized List<String> pathsUnder(String directory) {
+    List<String> paths = new ArrayList<>();
+    collectUnder(directory, paths);
+    return paths;
+  }
+
+  // Catalogued entries at or below a path of the vault, 0 when it's outside of it
+  public synchronized int countUnder(Path path) {
+    Path absolute = path.toAbsolutePath();
+    if (!absolute.startsWith(vault)) {
+      return 0;
+    }
+    List<String> paths = new ArrayList<>();
+    collectUnder(VaultFiles.relativeName(vault, absolute), paths);
+    return paths.size();
+  }
+
+  public synchronized void put(Entry entry) {
+    if (entry.equals(entries.get(entry.path()))) {
+      return;
+    }
+    apply(entry);
+    pending.add(new Change(entry, null));
+  }
+
+  // Remove a path and everything below it
+  public synchronized void remove(String path) {
+    if (!entries.containsKey(path)) {
+      return;
+    }
+    removeTree(path);
+    pending.add(new Change(null, path));
+  }
+
+  public synchronized boolean hasPendingChanges() {
+    return !pending.isEmpty();
+  }
+
+  // Append the changes made since the last flush to the log, folding everything into a snapshot once the log is long
+  public synchronized void flush() throws IOException {
+    if (pending.isEmpty()) {
+      return;
+    }
+    if (logRecords + pending.size() > Math.max(MIN_COMPACTION_RECORDS, entries.size() / 2)) {
+      compact();
+      return;
+    }
+    Files.createDirectories(logFile.getParent());
+    boolean newLog = !Files.exists(logFile);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        Files.newOutputStream(logFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 1 << 16))) {
+      if (newLog) {
+        out.writeInt(LOG_MAGIC);
+        out.writeInt(VERSION);
+      }
+      for (Change change : pending) {
+        if (change.entry() != null) {
+          out.writeByte(PUT);
+          writeEntry(out, change.entry());
+        } else {
+          out.writeByte(REMOVE);
+          out.writeUTF(change.removedPath());
+        }
+      }
+    }
+    logRecords += pending.size();
+    pending.clear();
+  }
+
+  // Write the whole catalog to a new snapshot and start an empty log
+  public synchronized void compact() throws IOException {
+    Files.createDirectories(snapshotFile.getParent());
+    Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(entries.size());
+      for (Entry entry : entries.values()) {
+        writeEntry(out, entry);
+      }
+    }
+    try {
+      Files.move(temp, snapshotFile, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+    // replaying an old log over the new snapshot gives the same catalog, so a crash before this is harmless
+    Files.deleteIfExists(logFile);
+    logRecords = 0;
+    pending.clear();
+  }
+
+  private void readSnapshot() throws IOException {
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(snapshotFile), 1 << 16))) {
+      if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Unsupported vault catalog " + snapshotFile);
+      }
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        apply(readEntry(in));
+      }
+    } catch (NoSuchFileException e) {
+      // first launch on this vault
+    }
+  }
+
+  // false when the log ends in the middle of a record
+  private boolean replayLog() throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile), 1 << 16))) {
+      if (in.readInt() != LOG_MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Unsupported vault catalog log " + logFile);
+      }
+      int op;
+      while ((op = in.read()) != -1) {
+        if (op == PUT) {
+          apply(readEntry(in));
+        } else if (op == REMOVE) {
+          removeTree(in.readUTF());
+        } else {
+          return false;
+        }
+        logRecords++;
+      }
+      return true;
+    } catch (NoSuchFileException e) {
+      return true;
+    } catch (EOFException e) {
+      return false;
+    }
+  }
+
+  private void apply(Entry entry) {
+    if (entries.put(entry.path(), entry) == null && !entry.path().isEmpty()) {
+      children.computeIfAbsent(parentOf(entry.path()), _ -> new HashSet<>()).add(entry.path());
+    }
+  }
+
+  private void removeTree(String path) {
+    List<String> removed = new ArrayList<>();
+    collectUnder(path, removed);
+    for (String name : removed) {
+      entries.remove(name);
+      children.remove(name);
+    }
+    Set<String> siblings = children.get(parentOf(path));
+    if (siblings != null) {
+      siblings.remove(path);
+    }
+  }
+
+  private void collectUnder(String path, List<String> paths) {
+    if (entries.containsKey(path)) {
+      paths.add(path);
+    }
+    Set<String> names = children.get(path);
+    if (names != null) {
+      for (String child : names) {
+        collectUnder(child, paths);
+      }
+    }
+  }
+
+  private static String parentOf(String path) {
+    int slash = path.lastIndexOf('/');
+    return slash < 0 ? "" : path.substring(0, slash);
+  }
+
+  private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+    out.writeUTF(entry.path());
+    out.writeBoolean(entry.directory());
+    out.writeLong(entry.size());
+    out.writeLong(entry.modified());
+    out.writeInt(entry.words());
+    out.writeUTF(entry.title());
+  }
+
+  private static Entry readEntry(DataInputStream in) throws IOException {
+    return new Entry(in.readUTF(), in.readBoolean(), in.readLong(), in.readLong(), in.readInt(), in.readUTF());
+  }
+}
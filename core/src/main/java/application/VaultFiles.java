@@ -0,0 +1,39 @@
+package application;
+
+import java.nio.file.Path;
+
+// Naming rules shared by everything that walks a vault
+public final class VaultFiles {
+  public static final String METADATA_DIRECTORY = ".skrib"; // Skribber's own files inside a vault, hidden from the notes list
+
+  private VaultFiles() {}
+
+  // notes are the file types the editor can open
+  public static boolean isNote(Path path) {
+    return isNote(path.getFileName().toString());
+  }
+
+  public static boolean isNote(String name) {
+    String lowerCase = name.toLowerCase();
+    return lowerCase.endsWith(".html") || lowerCase.endsWith(".htm") || lowerCase.endsWith(".txt");
+  }
+
+  public static boolean isMetadata(Path path) {
+    return METADATA_DIRECTORY.equals(path.getFileName().toString());
+  }
+
+  // temp files AtomicNoteWriter renames over a note, they only exist for the duration of a save
+  public static boolean isTemporary(Path path) {
+    String name = path.getFileName().toString();
+    return name.startsWith(".") && name.endsWith(".tmp");
+  }
+
+  public static Path metadataDirectory(Path vault) {
+    return vault.resolve(METADATA_DIRECTORY);
+  }
+
+  // vault relative path with '/' separators, the same on every platform
+  public static String relativeName(Path vault, Path path) {
+    return vault.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+  }
+}
@@ -0,0 +1,73 @@
+package application;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Notes, words and bytes below every folder of a vault. Totals are kept per directory, so a changed note only
+// recomputes its own folder and the folders above it from the catalog, without reading anything else.
+public class VaultStatistics {
+  public record Totals(int notes, long words, long bytes) {
+    public static final Totals EMPTY = new Totals(0, 0, 0);
+
+    public Totals plus(Totals other) {
+      return new Totals(notes + other.notes, words + other.words, bytes + other.bytes);
+    }
+  }
+
+  private final Path vault;
+  private final Map<String, Totals> directories = new ConcurrentHashMap<>(); // vault relative directory -> totals
+
+  public VaultStatistics(Path vault) {
+    this.vault = vault;
+  }
+
+  // Totals of a directory of the vault, null while it hasn't been counted
+  public Totals get(Path directory) {
+    Path absolute = directory.toAbsolutePath();
+    return absolute.startsWith(vault) ? directories.get(VaultFiles.relativeName(vault, absolute)) : null;
+  }
+
+  public Totals get(String directory) {
+    return directories.get(directory);
+  }
+
+  // Add up the notes of a directory and the totals of its subdirectories, which have to be current already
+  public Totals recompute(VaultCatalog catalog, String directory) {
+    Totals totals = Totals.EMPTY;
+    for (VaultCatalog.Entry entry : catalog.list(directory)) {
+      if (entry.directory()) {
+        totals = totals.plus(directories.getOrDefault(entry.path(), Totals.EMPTY));
+      } else if (VaultFiles.isNote(entry.path())) {
+        totals = totals.plus(new Totals(1, entry.words(), entry.size()));
+      }
+    }
+    directories.put(directory, totals);
+    return totals;
+  }
+
+  // Total a directory and every folder below it from the catalog alone, e.g. as it was at the last launch
+  public Totals recomputeTree(VaultCatalog catalog, String directory) {
+    for (VaultCatalog.Entry entry : catalog.list(directory)) {
+      if (entry.directory()) {
+        recomputeTree(catalog, entry.path());
+      }
+    }
+    return recompute(catalog, directory);
+  }
+
+  // Recompute the folders containing a changed path, up to the vault
+  public void recomputeAbove(VaultCatalog catalog, String path) {
+    String directory = path;
+    while (!directory.isEmpty()) {
+      directory = directory.substring(0, Math.max(0, directory.lastIndexOf('/')));
+      recompute(catalog, directory);
+    }
+  }
+
+  // Forget a deleted directory and everything below it
+  public void remove(String directory) {
+    String prefix = directory + "/";
+    directories.keySet().removeIf(name -> name.equals(directory) || name.startsWith(prefix));
+  }
+}
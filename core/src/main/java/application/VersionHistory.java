@@ -0,0 +1,231 @@
+package application;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Earlier versions of the notes of a vault, a pack per note in the vault's metadata directory. Saves only hand the
+// content over, packs are written on a background thread and versions saved while it was busy are merged into the
+// newest one. Old history is thinned out in the background: every version of the last day is kept, then one per hour
+// for a month and one per day before that.
+public class VersionHistory {
+  private static final String HISTORY_DIRECTORY = "history";
+  private static final String PACK_EXTENSION = ".pack";
+  private static final int CACHED_PACKS = 32;
+  private static final int COMPACTION_INTERVAL = 64; // versions added to a pack between two thinning passes
+  private static final long SWEEP_DELAY_SECONDS = 60; // every pack of a vault is thinned once it has settled
+  private static final long HOUR = 60 * 60 * 1000L;
+  private static final long DAY = 24 * HOUR;
+  private static final long HOURLY_AGE = 30 * DAY; // versions older than this are kept one per day
+
+  private record Pending(String content, long timestamp) {}
+
+  private final ScheduledExecutorService executor;
+  private final Map<Path, Pending> pending = new ConcurrentHashMap<>(); // newest unwritten version per note
+
+  // everything below is only touched by the history thread
+  private final Map<Path, VersionPack> packs = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Path, VersionPack> eldest) {
+      return size() > CACHED_PACKS;
+    }
+  };
+  // content notes had when they were opened, written as their first version once they are saved
+  private final Map<Path, String> baselines = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Path, String> eldest) {
+      return size() > CACHED_PACKS;
+    }
+  };
+  private Path vault;
+  private ScheduledFuture<?> sweep;
+
+  public VersionHistory() {
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "skrib-history");
+      thread.setDaemon(true);
+      return thread;
+    });
+    // a sweep still waiting at exit is dropped instead of holding up shutdown, the writes shutdown queues still run
+    scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    executor = scheduler;
+  }
+
+  public void open(Path vaultDirectory) {
+    Path absolute = vaultDirectory.toAbsolutePath();
+    executor.execute(() -> {
+      writePending();
+      vault = absolute;
+      packs.clear();
+      baselines.clear();
+      if (sweep != null) {
+        sweep.cancel(false);
+      }
+      sweep = executor.schedule(this::sweep, SWEEP_DELAY_SECONDS, TimeUnit.SECONDS);
+    });
+  }
+
+  // Remember what a note looked like on disk when it was opened, so its first save doesn't lose it. Nothing is
+  // written for notes that are only read.
+  public void opened(Path note, String content) {
+    Path absolute = note.toAbsolutePath();
+    executor.execute(() -> baselines.put(absolute, content));
+  }
+
+  // Record the content a note was saved with, returns at once
+  public void record(Path note, String content) {
+    Path absolute = note.toAbsolutePath();
+    if (pending.put(absolute, new Pending(content, System.currentTimeMillis())) == null) {
+      executor.execute(() -> write(absolute));
+    }
+  }
+
+  // Versions of a note, oldest first, including the ones still queued
+  public CompletableFuture<List<VersionPack.Version>> versions(Path note) {
+    Path absolute = note.toAbsolutePath();
+    return CompletableFuture.supplyAsync(() -> {
+      write(absolute);
+      try {
+        return inVault(absolute) ? List.copyOf(pack(absolute).getVersions()) : List.of();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, executor);
+  }
+
+  // Content of a version, which may have been thinned out since it was listed
+  public CompletableFuture<String> read(Path note, VersionPack.Version version) {
+    Path absolute = note.toAbsolutePath();
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        VersionPack pack = pack(absolute);
+        for (VersionPack.Version stored : pack.getVersions()) {
+          // compaction renumbers versions, they are found by their time and content instead
+          if (stored.timestamp() == version.timestamp() && stored.hash() == version.hash()) {
+            return pack.read(stored);
+          }
+        }
+        throw new IOException("Version of " + note.getFileName() + " is no longer kept");
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }, executor);
+  }
+
+  public void shutdown() {
+    executor.execute(this::writePending);
+    executor.shutdown();
+    try {
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // Versions worth keeping, oldest first: everything of the last day, then the newest of every hour for a month and
+  // the newest of every day before that. The newest version is always kept.
+  static List<VersionPack.Version> thin(List<VersionPack.Version> versions, long now) {
+    List<VersionPack.Version> kept = new ArrayList<>();
+    Set<Long> buckets = new HashSet<>();
+    for (int i = versions.size() - 1; i >= 0; i--) {
+      VersionPack.Version version = versions.get(i);
+      long age = now - version.timestamp();
+      boolean keep;
+      if (i == versions.size() - 1 || age < DAY) {
+        keep = true;
+      } else if (age < HOURLY_AGE) {
+        keep = buckets.add(version.timestamp() / HOUR);
+      } else {
+        keep = buckets.add(-1 - version.timestamp() / DAY); // negative, so days never collide with hours
+      }
+      if (keep) {
+        kept.add(version);
+      }
+    }
+    return kept.reversed();
+  }
+
+  private void write(Path note) {
+    Pending version = pending.remove(note);
+    if (version == null || !inVault(note)) {
+      return;
+    }
+    try {
+      VersionPack pack = pack(note);
+      String baseline = baselines.remove(note);
+      if (pack.getVersions().isEmpty() && baseline != null) {
+        pack.append(version.timestamp() - 1, baseline);
+      }
+      if (pack.append(version.timestamp(), version.content())
+          && pack.getVersions().size() % COMPACTION_INTERVAL == 0) {
+        compact(pack);
+      }
+    } catch (IOException e) {
+      e.printStackTrace(); // the note itself was saved, only this version is lost
+    }
+  }
+
+  private void writePending() {
+    for (Path note : List.copyOf(pending.keySet())) {
+      write(note);
+    }
+  }
+
+  private static void compact(VersionPack pack) throws IOException {
+    List<VersionPack.Version> kept = thin(pack.getVersions(), System.currentTimeMillis());
+    if (kept.size() < pack.getVersions().size()) {
+      pack.retain(kept);
+    }
+  }
+
+  // Thin out the history of every note of the vault, cached packs are read again afterwards
+  private void sweep() {
+    Path directory = VaultFiles.metadataDirectory(vault).resolve(HISTORY_DIRECTORY);
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + PACK_EXTENSION)) {
+      for (Path file : stream) {
+        try {
+          VersionPack pack = VersionPack.open(file, null);
+          compact(pack);
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+    } catch (NoSuchFileException e) {
+      // nothing was saved in this vault yet
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    packs.clear(); // offsets of cached packs are stale after a rewrite
+  }
+
+  private VersionPack pack(Path note) throws IOException {
+    VersionPack pack = packs.get(note);
+    if (pack == null) {
+      String name = VaultFiles.relativeName(vault, note);
+      Path directory = VaultFiles.metadataDirectory(vault).resolve(HISTORY_DIRECTORY);
+      Files.createDirectories(directory);
+      pack = VersionPack.open(directory.resolve(String.format("%016x", ContentHash.of(name)) + PACK_EXTENSION), name);
+      packs.put(note, pack);
+    }
+    return pack;
+  }
+
+  private boolean inVault(Path path) {
+    return vault != null && path.startsWith(vault);
+  }
+}
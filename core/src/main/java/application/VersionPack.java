@@ -0,0 +1,271 @@
+package application;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Version history of a single note in an append-only file. A version is stored as its difference to the version
+// before it, the common start and end are kept and only the text in between is written, deflated. Every
+// KEYFRAME_INTERVAL versions a full copy is written instead, so reading any version applies a bounded number of deltas.
+// Not thread safe, VersionHistory only uses it from its own thread.
+public class VersionPack {
+  private static final int MAGIC = 0x534b5650; // "SKVP"
+  private static final int VERSION = 1;
+  private static final byte KEYFRAME = 1;
+  private static final byte DELTA = 2;
+  private static final int KEYFRAME_INTERVAL = 16;
+  private static final int RECORD_HEADER_SIZE = 25; // kind, timestamp, length, hash and payload length
+
+  // A stored version, number is its position in the pack and length its size in characters
+  public record Version(int number, long timestamp, int length, long hash, boolean keyframe, long offset,
+      int payloadLength) {}
+
+  private final Path file;
+  private String note; // vault relative name, written into the pack so it can be told apart from others
+  private final List<Version> versions = new ArrayList<>();
+  private String newestText; // content of the newest version, decoded when it's first needed
+
+  private VersionPack(Path file, String note) {
+    this.file = file;
+    this.note = note;
+  }
+
+  // Read the versions of a pack, nothing is written before the first version is added. note may be null to open an
+  // existing pack of whichever note it belongs to.
+  public static VersionPack open(Path file, String note) throws IOException {
+    VersionPack pack = new VersionPack(file, note);
+    if (Files.exists(file)) {
+      pack.scan();
+    }
+    return pack;
+  }
+
+  public String getNote() {
+    return note;
+  }
+
+  public List<Version> getVersions() {
+    return Collections.unmodifiableList(versions);
+  }
+
+  // Add a version unless it's the same as the newest one, returns whether it was added
+  public boolean append(long timestamp, String content) throws IOException {
+    long hash = ContentHash.of(content);
+    Version newest = versions.isEmpty() ? null : versions.get(versions.size() - 1);
+    if (newest != null && newest.hash() == hash && newest.length() == content.length()) {
+      return false;
+    }
+    boolean keyframe = newest == null || newest.number() - lastKeyframe(newest.number()) + 1 >= KEYFRAME_INTERVAL;
+    byte[] payload = keyframe ? encodeKeyframe(content) : encodeDelta(read(newest), content);
+
+    boolean created = !Files.exists(file);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      if (created) {
+        writeFully(channel, header(), 0);
+      }
+      long offset = channel.size();
+      writeFully(channel, record(keyframe, timestamp, content.length(), hash, payload), offset);
+      versions.add(new Version(versions.size(), timestamp, content.length(), hash, keyframe, offset, payload.length));
+    }
+    newestText = content;
+    return true;
+  }
+
+  public String read(Version version) throws IOException {
+    if (version.number() == versions.size() - 1 && newestText != null) {
+      return newestText;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      String text = null;
+      for (int i = lastKeyframe(version.number()); i <= version.number(); i++) {
+        text = decode(channel, versions.get(i), text);
+      }
+      if (version.number() == versions.size() - 1) {
+        newestText = text;
+      }
+      return text;
+    }
+  }
+
+  // Rewrite the pack with only the given versions, oldest first, e.g. to thin out old history
+  public void retain(List<Version> kept) throws IOException {
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    List<Version> rewritten = new ArrayList<>(kept.size());
+    try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+        FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      long offset = writeFully(out, header(), 0);
+      String text = null;
+      String previousKept = null;
+      int next = 0;
+      for (Version version : versions) {
+        text = decode(in, version, text); // every version is decoded once, in order
+        if (next == kept.size() || kept.get(next).number() != version.number()) {
+          continue;
+        }
+        boolean keyframe = rewritten.size() % KEYFRAME_INTERVAL == 0;
+        byte[] payload = keyframe ? encodeKeyframe(text) : encodeDelta(previousKept, text);
+        Version copy = new Version(rewritten.size(), version.timestamp(), version.length(), version.hash(), keyframe,
+            offset, payload.length);
+        offset += writeFully(out, record(keyframe, version.timestamp(), version.length(), version.hash(), payload),
+            offset);
+        rewritten.add(copy);
+        previousKept = text;
+        next++;
+      }
+      out.force(true);
+    }
+    try {
+      Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+    versions.clear();
+    versions.addAll(rewritten);
+    newestText = null;
+  }
+
+  // Read the record headers, a record cut off by a crash is dropped from the end of the file
+  private void scan() throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long size = channel.size();
+      ByteBuffer head = readFully(channel, 12, 0);
+      if (head.getInt() != MAGIC || head.getInt() != VERSION) {
+        throw new IOException("Unsupported version pack " + file);
+      }
+      int nameLength = head.getInt();
+      String name = StandardCharsets.UTF_8.decode(readFully(channel, nameLength, 12)).toString();
+      if (note == null) {
+        note = name;
+      } else if (!name.equals(note)) {
+        throw new IOException("Version pack " + file + " belongs to " + name);
+      }
+      long position = 12 + nameLength;
+      while (position + RECORD_HEADER_SIZE <= size) {
+        ByteBuffer record = readFully(channel, RECORD_HEADER_SIZE, position);
+        byte kind = record.get();
+        long timestamp = record.getLong();
+        int length = record.getInt();
+        long hash = record.getLong();
+        int payloadLength = record.getInt();
+        boolean valid = kind == KEYFRAME || (kind == DELTA && !versions.isEmpty());
+        if (!valid || payloadLength < 0 || position + RECORD_HEADER_SIZE + payloadLength > size) {
+          break;
+        }
+        versions.add(new Version(versions.size(), timestamp, length, hash, kind == KEYFRAME, position, payloadLength));
+        position += RECORD_HEADER_SIZE + payloadLength;
+      }
+      if (position < size) {
+        channel.truncate(position);
+      }
+    }
+  }
+
+  private int lastKeyframe(int number) {
+    int keyframe = number;
+    while (!versions.get(keyframe).keyframe()) {
+      keyframe--;
+    }
+    return keyframe;
+  }
+
+  private String decode(FileChannel channel, Version version, String previous) throws IOException {
+    ByteBuffer payload = readFully(channel, version.payloadLength(), version.offset() + RECORD_HEADER_SIZE);
+    String text;
+    try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+        new ByteArrayInputStream(payload.array(), 0, payload.limit())))) {
+      if (version.keyframe()) {
+        text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      } else {
+        int prefix = in.readInt();
+        int suffix = in.readInt();
+        String middle = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        text = previous.substring(0, prefix) + middle + previous.substring(previous.length() - suffix);
+      }
+    }
+    if (ContentHash.of(text) != version.hash()) {
+      throw new IOException("Version " + version.number() + " of " + file + " is damaged");
+    }
+    return text;
+  }
+
+  private byte[] header() {
+    byte[] name = note.getBytes(StandardCharsets.UTF_8);
+    return ByteBuffer.allocate(12 + name.length).putInt(MAGIC).putInt(VERSION).putInt(name.length).put(name).array();
+  }
+
+  private static byte[] record(boolean keyframe, long timestamp, int length, long hash, byte[] payload) {
+    return ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length)
+        .put(keyframe ? KEYFRAME : DELTA).putLong(timestamp).putInt(length).putLong(hash).putInt(payload.length)
+        .put(payload).array();
+  }
+
+  private static byte[] encodeKeyframe(String content) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+      out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  // The common start and end of both versions are kept, only what's in between is stored
+  private static byte[] encodeDelta(String previous, String next) throws IOException {
+    int max = Math.min(previous.length(), next.length());
+    int prefix = 0;
+    while (prefix < max && previous.charAt(prefix) == next.charAt(prefix)) {
+      prefix++;
+    }
+    int suffix = 0;
+    while (suffix < max - prefix
+        && previous.charAt(previous.length() - 1 - suffix) == next.charAt(next.length() - 1 - suffix)) {
+      suffix++;
+    }
+    // surrogate pairs stay whole, half of one can't be encoded as UTF-8
+    if (prefix > 0 && Character.isHighSurrogate(next.charAt(prefix - 1))) {
+      prefix--;
+    }
+    if (suffix > 0 && Character.isLowSurrogate(next.charAt(next.length() - suffix))) {
+      suffix--;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+      out.writeInt(prefix);
+      out.writeInt(suffix);
+      out.write(next.substring(prefix, next.length() - suffix).getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  private static ByteBuffer readFully(FileChannel channel, int length, long position) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+    return buffer.flip();
+  }
+
+  private static int writeFully(FileChannel channel, byte[] bytes, long position) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, position + buffer.position());
+    }
+    return bytes.length;
+  }
+}
@@ -0,0 +1,145 @@
+package application;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+
+// Exports a vault into a single archive and imports one into a folder without blocking the FX thread. One export or
+// import runs at a time, its files are deflated on every core. Imported files and folders are handed to the FX
+// thread in batches as they land, so the tree grows with the import instead of being rescanned after it.
+public class ArchiveService {
+  // State of the export or import shown to the user, done and total are bytes
+  public record Progress(String task, long done, long total, boolean running) {}
+
+  private final ExecutorService executor;
+  private final ExecutorService compressor;
+  private final VaultArchive archive;
+  private final Consumer<Progress> progressHandler; // called on the FX thread
+  private final AtomicBoolean cancelled = new AtomicBoolean();
+  private final AtomicBoolean publishScheduled = new AtomicBoolean();
+  private final AtomicBoolean entriesScheduled = new AtomicBoolean();
+  private final ConcurrentLinkedQueue<NoteStore.Entry> entries = new ConcurrentLinkedQueue<>();
+  private volatile Progress current = new Progress("", 0, 0, false);
+
+  public ArchiveService(int level, Consumer<Progress> progressHandler) {
+    this.progressHandler = progressHandler;
+    executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "skrib-archive");
+      thread.setDaemon(true);
+      return thread;
+    });
+    int cores = Runtime.getRuntime().availableProcessors();
+    AtomicInteger threads = new AtomicInteger();
+    compressor = Executors.newFixedThreadPool(cores, runnable -> {
+      Thread thread = new Thread(runnable, "skrib-archive-deflate-" + threads.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    archive = new VaultArchive(compressor, cores, level);
+  }
+
+  public boolean isRunning() {
+    return current.running();
+  }
+
+  // Pack the vault of a store into an archive. Completes exceptionally with a CancellationException when cancelled,
+  // nothing is left behind then.
+  public CompletableFuture<VaultArchive.Result> export(NoteStore store, Path target) {
+    return run("Exporting", () -> archive.pack(store, target, this::progress, cancelled::get));
+  }
+
+  // Unpack an archive into a folder, files that exist there already are kept. entriesHandler receives the created
+  // files and folders on the FX thread, parents first, all of them before the returned future completes.
+  public CompletableFuture<VaultArchive.Result> importArchive(Path source, Path target,
+      Consumer<List<NoteStore.Entry>> entriesHandler) {
+    return run("Importing", () -> {
+      try {
+        return archive.unpack(source, target, this::progress, cancelled::get, entry -> {
+          entries.add(entry);
+          publishEntries(entriesHandler);
+        });
+      } finally {
+        publishEntries(entriesHandler); // queued before the future's handlers run on the FX thread
+      }
+    });
+  }
+
+  // Stop the running export or import
+  public void cancel() {
+    cancelled.set(true);
+  }
+
+  public void shutdown() {
+    cancel();
+    executor.shutdown();
+    compressor.shutdown();
+  }
+
+  private interface Task {
+    VaultArchive.Result run() throws Exception;
+  }
+
+  private CompletableFuture<VaultArchive.Result> run(String task, Task work) {
+    current = new Progress(task, 0, 0, true);
+    cancelled.set(false);
+    publish();
+    CompletableFuture<VaultArchive.Result> result = new CompletableFuture<>();
+    executor.execute(() -> {
+      try {
+        VaultArchive.Result done = work.run();
+        finish(task);
+        result.complete(done);
+      } catch (Exception e) {
+        finish(task);
+        result.completeExceptionally(e);
+      }
+    });
+    return result;
+  }
+
+  private void progress(long done, long total) {
+    current = new Progress(current.task(), done, total, true);
+    publish();
+  }
+
+  private void finish(String task) {
+    current = new Progress(task, current.done(), current.total(), false);
+    publish();
+  }
+
+  // Hand the progress to the FX thread, calls made before it ran are merged into one
+  private void publish() {
+    if (publishScheduled.compareAndSet(false, true)) {
+      Platform.runLater(() -> {
+        publishScheduled.set(false);
+        progressHandler.accept(current);
+      });
+    }
+  }
+
+  // Hand the imported entries to the FX thread, everything that landed before it ran goes in one batch
+  private void publishEntries(Consumer<List<NoteStore.Entry>> entriesHandler) {
+    if (entriesScheduled.compareAndSet(false, true)) {
+      Platform.runLater(() -> {
+        entriesScheduled.set(false);
+        List<NoteStore.Entry> batch = new ArrayList<>();
+        NoteStore.Entry entry;
+        while ((entry = entries.poll()) != null) {
+          batch.add(entry);
+        }
+        if (!batch.isEmpty()) {
+          entriesHandler.accept(batch);
+        }
+      });
+    }
+  }
+}
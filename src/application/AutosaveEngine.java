@@ -0,0 +1,132 @@
+package application;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.util.Duration;
+
+// Coalesces bursts of edits into one save after a quiet period and writes it on a dedicated writer thread
+public class AutosaveEngine {
+  private final Supplier<String> contentSupplier; // reads the editor content, only called on the FX thread
+  private final AtomicNoteWriter noteWriter;
+  private final Supplier<DirtyTracker> dirtyTracker; // of the shown note, told which edits reached the disk
+  private final Consumer<IOException> errorHandler; // called on the FX thread when a write fails
+  private final PauseTransition quietTimer;
+  private final ExecutorService writer;
+
+  private volatile BiConsumer<Path, String> saveListener = (_, _) -> {}; // called on the writer thread after each write
+  private File pendingFile; // file with edits that haven't been handed to the writer yet
+
+  private final AtomicLong savesIssued = new AtomicLong(); // writes that reached the disk
+  private final AtomicLong savesCoalesced = new AtomicLong(); // edits folded into a later save
+  private final AtomicLong savesSkipped = new AtomicLong(); // saves dropped because content was unchanged
+
+  public AutosaveEngine(Supplier<String> contentSupplier, AtomicNoteWriter noteWriter,
+      Supplier<DirtyTracker> dirtyTracker, Duration quietPeriod, Consumer<IOException> errorHandler) {
+    this.contentSupplier = contentSupplier;
+    this.noteWriter = noteWriter;
+    this.dirtyTracker = dirtyTracker;
+    this.errorHandler = errorHandler;
+
+    quietTimer = new PauseTransition(quietPeriod);
+    quietTimer.setOnFinished(_ -> flush());
+
+    writer = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "skrib-autosave-writer");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // Called on the FX thread after every edit, restarts the quiet period
+  public void contentChanged(File file) {
+    if (pendingFile != null && !pendingFile.equals(file)) {
+      flush(); // edits of the previous file must not wait for the new file's quiet period
+    } else if (pendingFile != null) {
+      savesCoalesced.incrementAndGet();
+    }
+    pendingFile = file;
+    quietTimer.playFromStart();
+  }
+
+  // Save pending edits right away, e.g. before the editor switches to another note
+  public void flush() {
+    quietTimer.stop();
+    if (pendingFile == null) {
+      return;
+    }
+    File file = pendingFile;
+    pendingFile = null;
+    DirtyTracker tracker = dirtyTracker.get();
+    DirtyTracker.Snapshot snapshot = tracker.snapshot();
+    String content = contentSupplier.get();
+    writer.execute(() -> write(file.toPath(), content, tracker, snapshot));
+  }
+
+  // Drop pending edits without saving them, e.g. when the note is being deleted
+  public void discard() {
+    quietTimer.stop();
+    pendingFile = null;
+  }
+
+  // Notified on the writer thread with the path and content of every completed save
+  public void setSaveListener(BiConsumer<Path, String> saveListener) {
+    this.saveListener = saveListener;
+  }
+
+  public long getSavesIssued() {
+    return savesIssued.get();
+  }
+
+  public long getSavesCoalesced() {
+    return savesCoalesced.get();
+  }
+
+  public long getSavesSkipped() {
+    return savesSkipped.get();
+  }
+
+  // Flush pending edits and wait for the writer to finish, called when the application exits
+  public void shutdown() {
+    flush();
+    writer.shutdown();
+    try {
+      writer.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void write(Path path, String content, DirtyTracker tracker, DirtyTracker.Snapshot snapshot) {
+    long hash = ContentHash.of(content);
+    if (tracker.matchesFile(hash)) {
+      savesSkipped.incrementAndGet();
+      tracker.markSaved(snapshot, hash); // what's on disk already matches the editor, e.g. an edit was undone
+      return;
+    }
+    Metrics.Timer timer = Metrics.start(Metrics.Operation.AUTOSAVE);
+    try {
+      noteWriter.write(path, content);
+      timer.stop(String.format("%,d characters", content.length()));
+      savesIssued.incrementAndGet();
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      tracker.markSaved(snapshot, hash, attributes.lastModifiedTime().toMillis(), attributes.size());
+      saveListener.accept(path, content);
+    } catch (IOException e) {
+      e.printStackTrace();
+      Platform.runLater(() -> errorHandler.accept(e));
+    }
+  }
+}
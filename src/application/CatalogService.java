@@ -0,0 +1,365 @@
+package application;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javafx.application.Platform;
+
+// Keeps the catalog of the open vault in line with the disk and totals its notes, words and bytes per folder.
+// A vault is reconciled by a fork/join task per directory, so folders are listed and notes are read on every core.
+public class CatalogService {
+  private static final int COUNT_CHUNK = 16; // changed notes read by a single task
+  private static final long FLUSH_DELAY_SECONDS = 2; // changes are appended to the log in batches
+  private static final int TITLE_WORDS = 8; // first words of a note make up its title
+  private static final int MAX_TITLE_LENGTH = 80;
+
+  // Receives the statistics on the FX thread whenever they changed, at most once per pass of the FX event queue
+  public interface StatisticsListener {
+    // counted is the number of files checked by a running reconcile, -1 when none is running
+    void statisticsChanged(VaultStatistics statistics, int counted);
+  }
+
+  private final ScheduledExecutorService executor;
+  private final ForkJoinPool pool;
+  private final StatisticsListener listener;
+  private final AtomicInteger counted = new AtomicInteger();
+  private final AtomicBoolean publishScheduled = new AtomicBoolean();
+  private volatile int generation; // bumped whenever another vault opens, so a stale reconcile stops
+  private volatile boolean reconciling;
+  private volatile VaultStatistics statistics;
+
+  // written by the catalog thread, reconcile tasks only run while it waits for them
+  private VaultCatalog catalog;
+  private Path vault;
+  private ScheduledFuture<?> pendingFlush;
+
+  public CatalogService(StatisticsListener listener) {
+    this.listener = listener;
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "skrib-catalog");
+      thread.setDaemon(true);
+      return thread;
+    });
+    // a delayed flush is dropped at exit instead of holding up shutdown, the flush shutdown queues writes the log
+    scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    executor = scheduler;
+    pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(), forkJoinPool -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+      thread.setName("skrib-catalog-" + thread.getPoolIndex());
+      return thread;
+    }, null, false);
+  }
+
+  // Use the catalog of a vault the caller read, the tree is shown from it right away, then reconcile it with the disk
+  public VaultCatalog open(VaultCatalog opened) {
+    Path absolute = opened.getVault();
+    int build = ++generation; // only called on the FX thread
+    executor.execute(() -> {
+      flushNow();
+      vault = absolute;
+      catalog = opened;
+      statistics = new VaultStatistics(absolute);
+      statistics.recomputeTree(catalog, ""); // totals of the last launch until the vault has been counted again
+      reconcile(vault, build);
+    });
+    return opened;
+  }
+
+  // Called after a note was written, its words and title are taken from the content instead of the file
+  public void update(Path file, String content) {
+    executor.execute(() -> {
+      if (!inVault(file)) {
+        return;
+      }
+      try {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        NoteSummary summary = new NoteSummary();
+        summary.feed(content);
+        catalog.put(summary.toEntry(relativeName(file), attributes));
+        statistics.recomputeAbove(catalog, relativeName(file));
+        markChanged();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    });
+  }
+
+  // forget a deleted note or folder with everything below it
+  public void remove(Path path) {
+    executor.execute(() -> {
+      if (inVault(path)) {
+        forget(relativeName(path));
+      }
+    });
+  }
+
+  // Bring a path that changed outside of Skribber up to date, notes that didn't change aren't read
+  public void refresh(Path path) {
+    executor.execute(() -> {
+      if (!inVault(path)) {
+        return;
+      }
+      try {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class,
+            LinkOption.NOFOLLOW_LINKS);
+        String name = relativeName(path);
+        if (attributes.isDirectory()) {
+          if (!name.isEmpty()) {
+            catalog.put(directoryEntry(name, attributes));
+          }
+          reconcile(path, generation);
+        } else {
+          catalogFile(path);
+          statistics.recomputeAbove(catalog, name);
+          markChanged();
+        }
+      } catch (NoSuchFileException e) {
+        forget(relativeName(path));
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    });
+  }
+
+  public void shutdown() {
+    generation++; // a running reconcile stops
+    executor.execute(() -> {
+      if (pendingFlush != null) {
+        pendingFlush.cancel(false);
+      }
+      flushNow();
+    });
+    executor.shutdown();
+    try {
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    pool.shutdownNow();
+  }
+
+  private void reconcile(Path root, int build) {
+    counted.set(0);
+    reconciling = true;
+    publish();
+    try {
+      pool.invoke(new DirectoryTask(root, build));
+      if (build == generation) {
+        statistics.recomputeAbove(catalog, relativeName(root));
+      }
+    } finally {
+      reconciling = false;
+    }
+    markChanged();
+  }
+
+  private void forget(String name) {
+    if (catalog.get(name) == null) {
+      return; // e.g. events from inside a folder that was moved to the trash
+    }
+    catalog.remove(name);
+    statistics.remove(name);
+    statistics.recomputeAbove(catalog, name);
+    markChanged();
+  }
+
+  // Read a file that changed since it was catalogued, words and title are only counted for notes
+  private void catalogFile(Path file) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      NoteSummary summary = new NoteSummary();
+      if (VaultFiles.isNote(file)) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+          summary.feed(reader);
+        }
+      }
+      catalog.put(summary.toEntry(relativeName(file), attributes));
+    } catch (NoSuchFileException e) {
+      catalog.remove(relativeName(file));
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  // Lists one directory, forks a task per subdirectory and per chunk of changed files, drops the entries that are
+  // gone and totals the directory once everything below it is done
+  private class DirectoryTask extends RecursiveAction {
+    private final Path directory;
+    private final int build;
+
+    DirectoryTask(Path directory, int build) {
+      this.directory = directory;
+      this.build = build;
+    }
+
+    @Override
+    protected void compute() {
+      if (build != generation) {
+        return;
+      }
+      String name = relativeName(directory);
+      Set<String> seen = new HashSet<>();
+      List<ForkJoinTask<?>> subtasks = new ArrayList<>();
+      List<Path> stale = new ArrayList<>();
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+        for (Path child : stream) {
+          if (VaultFiles.isMetadata(child) || VaultFiles.isTemporary(child)) {
+            continue;
+          }
+          BasicFileAttributes attributes;
+          try {
+            // links aren't followed, a link to a parent folder would never finish
+            attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+          } catch (IOException e) {
+            continue; // removed while listing
+          }
+          String childName = relativeName(child);
+          seen.add(childName);
+          if (attributes.isDirectory()) {
+            catalog.put(directoryEntry(childName, attributes));
+            subtasks.add(new DirectoryTask(child, build));
+          } else if (!catalog.isCurrent(childName, attributes.lastModifiedTime().toMillis(), attributes.size())) {
+            stale.add(child);
+          }
+          counted.incrementAndGet();
+        }
+      } catch (IOException | DirectoryIteratorException e) {
+        e.printStackTrace(); // keep what the catalog knows about it
+        return;
+      }
+      for (int i = 0; i < stale.size(); i += COUNT_CHUNK) {
+        subtasks.add(new CountTask(stale.subList(i, Math.min(stale.size(), i + COUNT_CHUNK)), build));
+      }
+      invokeAll(subtasks);
+      if (build != generation) {
+        return;
+      }
+
+      for (VaultCatalog.Entry entry : catalog.list(name)) {
+        if (!seen.contains(entry.path())) {
+          catalog.remove(entry.path());
+          statistics.remove(entry.path());
+        }
+      }
+      statistics.recompute(catalog, name);
+      publish();
+    }
+  }
+
+  private class CountTask extends RecursiveAction {
+    private final List<Path> files;
+    private final int build;
+
+    CountTask(List<Path> files, int build) {
+      this.files = files;
+      this.build = build;
+    }
+
+    @Override
+    protected void compute() {
+      for (Path file : files) {
+        if (build != generation) {
+          return;
+        }
+        catalogFile(file);
+      }
+    }
+  }
+
+  // Hand the statistics to the listener, calls made before it ran are merged into one
+  private void publish() {
+    if (publishScheduled.compareAndSet(false, true)) {
+      Platform.runLater(() -> {
+        publishScheduled.set(false);
+        listener.statisticsChanged(statistics, reconciling ? counted.get() : -1);
+      });
+    }
+  }
+
+  private void markChanged() {
+    publish();
+    if (catalog.hasPendingChanges() && (pendingFlush == null || pendingFlush.isDone())) {
+      pendingFlush = executor.schedule(this::flushNow, FLUSH_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  private void flushNow() {
+    if (catalog == null) {
+      return;
+    }
+    try {
+      catalog.flush();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private boolean inVault(Path path) {
+    return vault != null && path.toAbsolutePath().startsWith(vault);
+  }
+
+  private String relativeName(Path path) {
+    return VaultFiles.relativeName(vault, path.toAbsolutePath());
+  }
+
+  private static VaultCatalog.Entry directoryEntry(String name, BasicFileAttributes attributes) {
+    return new VaultCatalog.Entry(name, true, 0, attributes.lastModifiedTime().toMillis(), 0, "");
+  }
+
+  // Word count and title of a note, read in one pass
+  private static class NoteSummary {
+    private final StringBuilder title = new StringBuilder();
+    private final HtmlTokenizer tokenizer = new HtmlTokenizer(this::addWord);
+    private int titleWords;
+
+    void feed(CharSequence content) {
+      tokenizer.feed(content);
+    }
+
+    void feed(Reader reader) throws IOException {
+      char[] buffer = new char[8192];
+      int read;
+      while ((read = reader.read(buffer)) != -1) {
+        tokenizer.feed(buffer, 0, read);
+      }
+    }
+
+    VaultCatalog.Entry toEntry(String path, BasicFileAttributes attributes) {
+      tokenizer.finish();
+      return new VaultCatalog.Entry(path, false, attributes.size(), attributes.lastModifiedTime().toMillis(),
+          tokenizer.wordCount(), title.toString());
+    }
+
+    private void addWord(char[] buffer, int length) {
+      if (titleWords == TITLE_WORDS || title.length() >= MAX_TITLE_LENGTH) {
+        return;
+      }
+      if (titleWords++ > 0) {
+        title.append(' ');
+      }
+      title.append(buffer, 0, Math.min(length, MAX_TITLE_LENGTH - title.length()));
+    }
+  }
+}
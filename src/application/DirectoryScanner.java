@@ -0,0 +1,83 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+
+// Lists the contents of vault directories on background threads and hands them to the FX thread in batches
+public class DirectoryScanner {
+  private static final int BATCH_SIZE = 256; // entries handed to the FX thread at once
+
+  private final ExecutorService executor;
+  private NoteStore store; // lists the directories of the open vault
+  private VaultCatalog catalog; // listings of the last launch, shown while the real listing runs
+
+  public DirectoryScanner() {
+    executor = Executors.newFixedThreadPool(2, runnable -> {
+      Thread thread = new Thread(runnable, "skrib-directory-scanner");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public void setStore(NoteStore store) {
+    this.store = store;
+  }
+
+  public void setCatalog(VaultCatalog catalog) {
+    this.catalog = catalog;
+  }
+
+  // Children of a directory as the vault catalog last saw them, empty when it doesn't know the directory
+  public List<NoteStore.Entry> cachedListing(Path directory) {
+    Path absolute = directory.toAbsolutePath();
+    if (catalog == null || !absolute.startsWith(catalog.getVault())) {
+      return List.of();
+    }
+    List<VaultCatalog.Entry> catalogued = catalog.list(VaultFiles.relativeName(catalog.getVault(), absolute));
+    List<NoteStore.Entry> listed = new ArrayList<>(catalogued.size());
+    for (VaultCatalog.Entry entry : catalogued) {
+      String name = entry.path().substring(entry.path().lastIndexOf('/') + 1);
+      listed.add(new NoteStore.Entry(directory.resolve(name), entry.directory()));
+    }
+    return listed;
+  }
+
+  // List the direct children of a directory, onBatch and onComplete are always called on the FX thread
+  public void scan(Path directory, Consumer<List<NoteStore.Entry>> onBatch, Runnable onComplete) {
+    NoteStore listing = store;
+    executor.execute(() -> {
+      List<NoteStore.Entry> batch = new ArrayList<>(BATCH_SIZE);
+      try {
+        listing.list(directory, entry -> {
+          batch.add(entry);
+          if (batch.size() == BATCH_SIZE) {
+            List<NoteStore.Entry> fullBatch = List.copyOf(batch);
+            Platform.runLater(() -> onBatch.accept(fullBatch));
+            batch.clear();
+          }
+        });
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+
+      List<NoteStore.Entry> lastBatch = batch;
+      Platform.runLater(() -> {
+        if (!lastBatch.isEmpty()) {
+          onBatch.accept(lastBatch);
+        }
+        onComplete.run();
+      });
+    });
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
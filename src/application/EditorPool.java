@@ -0,0 +1,111 @@
+package application;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import javafx.scene.web.HTMLEditor;
+
+// HTMLEditors shared by the editor tabs. A tab keeps its editor, with its document, zoom and scroll position, for as
+// long as the memory budget allows, so flipping between recent notes parses nothing. Over the budget the tabs shown
+// least recently give their editor up and keep a snapshot of their note instead. Editors are handed on rather than
+// created for every tab, a new WebView is the expensive part. Only used on the FX thread.
+public class EditorPool {
+  private static final long EDITOR_COST = 32L * 1024 * 1024; // a WebView and its engine before any document
+  private static final long BYTES_PER_CHARACTER = 24; // DOM, styles and layout built from a character of HTML
+
+  private final Supplier<HTMLEditor> editorFactory;
+  private final long budget; // bytes
+  private final Set<NoteTab> live = new LinkedHashSet<>(); // tabs with an editor, least recently shown first
+  private final Deque<HTMLEditor> idle = new ArrayDeque<>(); // editors of closed tabs, ready for the next one
+  private final List<HTMLEditor> editors = new ArrayList<>(); // every editor that is kept, live or idle
+
+  public EditorPool(Supplier<HTMLEditor> editorFactory, long budget) {
+    this.editorFactory = editorFactory;
+    this.budget = budget;
+  }
+
+  // Give a tab a live editor, true when its snapshot had to be put into one and the document was built again
+  public boolean show(NoteTab tab) {
+    if (live.remove(tab)) {
+      live.add(tab); // most recently shown
+      return false;
+    }
+    HTMLEditor editor = idle.poll();
+    if (editor == null && !live.isEmpty() && usage() + cost(tab) > budget) {
+      editor = evictEldest(); // no room for another WebView, reuse the one shown least recently
+    }
+    if (editor == null) {
+      editor = editorFactory.get();
+      editors.add(editor);
+    }
+    tab.attach(editor);
+    live.add(tab);
+    trim();
+    return true;
+  }
+
+  // A tab was closed, its editor is kept for the next tab while the budget allows
+  public void release(NoteTab tab) {
+    if (!live.remove(tab)) {
+      return;
+    }
+    HTMLEditor editor = tab.release();
+    editor.setHtmlText(""); // let go of the document
+    idle.push(editor);
+    trim();
+  }
+
+  // Editors kept by the pool, e.g. to add a handler to all of them
+  public List<HTMLEditor> getEditors() {
+    return Collections.unmodifiableList(editors);
+  }
+
+  public int getLiveCount() {
+    return live.size();
+  }
+
+  // Rough memory used by the editors in bytes
+  public long getEstimatedUsage() {
+    return usage();
+  }
+
+  // Drop idle editors, then take editors away from the tabs shown least recently until the budget holds.
+  // The tab shown last always keeps its editor.
+  private void trim() {
+    while (usage() > budget) {
+      if (!idle.isEmpty()) {
+        editors.remove(idle.pop());
+      } else if (live.size() > 1) {
+        idle.push(evictEldest());
+      } else {
+        return;
+      }
+    }
+  }
+
+  private HTMLEditor evictEldest() {
+    Iterator<NoteTab> eldest = live.iterator();
+    NoteTab tab = eldest.next();
+    eldest.remove();
+    return tab.detach();
+  }
+
+  private long usage() {
+    long usage = idle.size() * EDITOR_COST;
+    for (NoteTab tab : live) {
+      usage += cost(tab);
+    }
+    return usage;
+  }
+
+  private static long cost(NoteTab tab) {
+    return EDITOR_COST + tab.getContentLength() * BYTES_PER_CHARACTER;
+  }
+}
@@ -0,0 +1,168 @@
+package application;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javafx.animation.AnimationTimer;
+import javafx.concurrent.Worker;
+import javafx.scene.web.HTMLEditor;
+import javafx.scene.web.WebEngine;
+import javafx.scene.web.WebView;
+
+// Zoom and scroll of the shown HTMLEditor's WebView. The WebView is looked up once per editor instead of on every key
+// press or gesture, and all scroll and zoom requests of a frame are merged into a single update with at most one script
+// call. Remembers where each note was left, so reopening it brings back its zoom and scroll position.
+public class EditorViewControl {
+  private static final int MAX_REMEMBERED_NOTES = 256;
+
+  // How a note was shown when it was left
+  private record ViewState(double zoom, int scrollY) {}
+
+  private final Set<WebView> observedViews = Collections.newSetFromMap(new WeakHashMap<>()); // have a load listener
+  private final Map<Path, ViewState> viewStates = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Path, ViewState> eldest) {
+      return size() > MAX_REMEMBERED_NOTES;
+    }
+  };
+  private final AnimationTimer frameTimer = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      applyPending();
+    }
+  };
+
+  private HTMLEditor editor; // editor of the shown tab, null while no note is shown
+  private WebView webView; // the editor's skin creates it when it's first shown, so it's resolved on first use
+  private int pendingScroll; // pixels requested since the last frame
+  private double pendingZoom = 1; // factor requested since the last frame
+  private int restoredScrollY = -1; // scroll position of the reopened note, applied once its document has loaded
+  private double restoredZoom; // zoom of the reopened note, 0 once applied
+  private boolean frameScheduled;
+
+  // Follow the editor of another tab, call remember for the note that is left first
+  public void setEditor(HTMLEditor editor) {
+    if (editor != this.editor) {
+      applyPending();
+      this.editor = editor;
+      webView = null;
+      restoredScrollY = -1;
+      restoredZoom = 0;
+    }
+  }
+
+  public void scrollBy(int pixels) {
+    pendingScroll += pixels;
+    restoredScrollY = -1; // the user has taken over
+    scheduleFrame();
+  }
+
+  public void zoomBy(double factor) {
+    pendingZoom *= factor;
+    scheduleFrame();
+  }
+
+  // Store the zoom and scroll position of the note that is being left
+  public void remember(Path note) {
+    WebView view = getWebView();
+    if (view == null) {
+      return;
+    }
+    applyPending();
+    viewStates.put(note, new ViewState(view.getZoom(), readScrollY(view.getEngine())));
+    restoredScrollY = -1;
+  }
+
+  // Bring back how a note was shown, call right after its content was put into the editor.
+  // Notes that weren't opened before keep the current zoom and start at the top.
+  public void restore(Path note) {
+    ViewState state = viewStates.get(note);
+    if (state == null) {
+      restoredScrollY = -1;
+      return;
+    }
+    pendingScroll = 0; // meant for the note that was left
+    restoredZoom = state.zoom();
+    restoredScrollY = state.scrollY();
+    scheduleFrame(); // the document may already be loaded, then no load event comes
+  }
+
+  // Forget a note that was deleted or renamed
+  public void forget(Path note) {
+    viewStates.remove(note);
+  }
+
+  private void scheduleFrame() {
+    if (!frameScheduled) {
+      frameScheduled = true;
+      frameTimer.start();
+    }
+  }
+
+  private void applyPending() {
+    frameTimer.stop();
+    frameScheduled = false;
+    WebView view = getWebView();
+    if (view == null) {
+      if (editor != null && editor.getScene() != null && restoredZoom > 0) {
+        scheduleFrame(); // a new editor gets its WebView from its skin, which is created for the next pulse
+      } else {
+        pendingScroll = 0;
+        pendingZoom = 1;
+      }
+      return;
+    }
+    if (restoredZoom > 0) {
+      view.setZoom(restoredZoom);
+      restoredZoom = 0;
+    }
+    if (pendingZoom != 1) {
+      view.setZoom(view.getZoom() * pendingZoom);
+      pendingZoom = 1;
+    }
+    WebEngine engine = view.getEngine();
+    if (restoredScrollY >= 0 && engine.getLoadWorker().getState() == Worker.State.SUCCEEDED) {
+      scrollTo(engine, restoredScrollY); // applied again if a load event follows, the editor may still replace it
+    } else if (pendingScroll != 0) {
+      scrollBy(engine, pendingScroll);
+      pendingScroll = 0;
+    }
+  }
+
+  private WebView getWebView() {
+    if (webView == null && editor != null) {
+      webView = (WebView) editor.lookup("WebView");
+      if (webView != null && observedViews.add(webView)) {
+        WebView view = webView;
+        view.getEngine().getLoadWorker().stateProperty().addListener((_, _, state) -> {
+          // editors are shared by the tabs, only the shown one gets the restored position
+          if (state == Worker.State.SUCCEEDED && view == webView && restoredScrollY >= 0) {
+            scrollTo(view.getEngine(), restoredScrollY);
+            restoredScrollY = -1;
+          }
+        });
+      }
+    }
+    return webView;
+  }
+
+  //                                        Script bridge
+  // Only numbers are put into scripts, so nothing from a note can end up being executed
+
+  private static void scrollBy(WebEngine engine, int pixels) {
+    engine.executeScript("window.scrollBy(0, " + pixels + ")");
+  }
+
+  private static void scrollTo(WebEngine engine, int y) {
+    engine.executeScript("window.scrollTo(0, " + y + ")");
+  }
+
+  private static int readScrollY(WebEngine engine) {
+    Object scrollY = engine.executeScript("window.scrollY");
+    return scrollY instanceof Number number ? number.intValue() : 0;
+  }
+}
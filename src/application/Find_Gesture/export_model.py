@@ -0,0 +1,44 @@
+import os
+import pickle
+import struct
+
+import numpy as np
+
+# Export the random forest trained by train_classifier.py for Skribber's in process classifier (RandomForestModel.java)
+
+script_dir = os.path.dirname(os.path.abspath(__file__))
+model_path = os.path.join(script_dir, 'model.p')
+export_path = os.path.join(script_dir, 'model.bin')
+
+MAGIC = 0x534B5246 # "SKRF"
+VERSION = 1
+
+model = pickle.load(open(model_path, 'rb'))['model']
+
+def float_threshold(threshold):
+  # sklearn compares float32 features against float64 thresholds, the largest float32 not above the threshold
+  # gives the same result for every float32 feature
+  rounded = np.float32(threshold)
+  if rounded > threshold:
+    rounded = np.nextafter(rounded, np.float32(-np.inf))
+  return float(rounded)
+
+with open(export_path, 'wb') as f:
+  f.write(struct.pack('>iiii', MAGIC, VERSION, model.n_features_in_, len(model.classes_)))
+  for label in model.classes_:
+    encoded = str(label).encode('utf-8')
+    f.write(struct.pack('>H', len(encoded)) + encoded) # same as Java's writeUTF for plain text
+  f.write(struct.pack('>i', len(model.estimators_)))
+  for estimator in model.estimators_:
+    tree = estimator.tree_
+    f.write(struct.pack('>i', tree.node_count))
+    for node in range(tree.node_count):
+      leaf = tree.children_left[node] == -1
+      f.write(struct.pack('>iiif', tree.children_left[node], tree.children_right[node],
+                          -1 if leaf else tree.feature[node], 0.0 if leaf else float_threshold(tree.threshold[node])))
+      if leaf:
+        counts = tree.value[node][0]
+        probabilities = counts / counts.sum() # newer versions already store fractions
+        f.write(struct.pack('>%df' % len(probabilities), *probabilities))
+
+print('Exported %d trees to %s' % (len(model.estimators_), export_path))
@@ -0,0 +1,23 @@
+import csv
+import os
+import pickle
+
+# Write the landmark vectors of data.pickle to a plain CSV file, one sample per line: label, then the 42 features.
+# bench/application/GestureReplay.java replays them through Skribber's gesture pipeline without a camera.
+
+script_dir = os.path.dirname(os.path.abspath(__file__))
+data_path = os.path.join(script_dir, 'data.pickle')
+export_path = os.path.join(script_dir, 'samples.csv')
+
+data_dict = pickle.load(open(data_path, 'rb'))
+
+written = 0
+with open(export_path, 'w', newline='') as f:
+  writer = csv.writer(f)
+  writer.writerow(['label'] + ['%s%d' % (axis, i) for i in range(21) for axis in ('x', 'y')])
+  for features, label in zip(data_dict['data'], data_dict['labels']):
+    if len(features) == 42: # only 1 hand
+      writer.writerow([label] + [repr(float(x)) for x in features])
+      written += 1
+
+print('Exported %d samples to %s' % (written, export_path))
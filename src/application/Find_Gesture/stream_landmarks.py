@@ -0,0 +1,124 @@
+import sys
+
+# diagnostics go to stderr, landmarks are sent to Skribber as binary frames
+def log(message):
+  print(message, file=sys.stderr, flush=True)
+
+log("Streaming hand landmarks")
+
+import cv2
+import mediapipe as mp
+import select
+import socket
+import struct
+import time
+
+# Skribber classifies the landmarks itself with the model exported by export_model.py,
+# this script only finds the hand in the camera frames
+
+# frame layout shared with FramedLandmarkSource.java: header (type, version, payload length), then the payload
+PROTOCOL_VERSION = 1
+FRAME_LANDMARKS = 2
+FRAME_HEARTBEAT = 3
+FRAME_CONTROL = 4
+CONTROL_PAUSE = 0
+CONTROL_RESUME = 1
+LANDMARK_FRAME = struct.Struct('>BBHQ42f') # capture time in microseconds, x and y of the 21 landmarks
+HEARTBEAT_FRAME = struct.Struct('>BBH')
+HEARTBEAT_INTERVAL = 1.0 # seconds, Skribber restarts the streamer when they stop
+FRAME_INTERVAL = 0.03 # seconds between frames, Skribber needs a few agreeing frames before a gesture acts
+
+# --port connects to Skribber, --record appends the frames to a file that can be replayed later
+skribber = None
+recording = None
+if '--port' in sys.argv:
+  port = int(sys.argv[sys.argv.index('--port') + 1])
+  skribber = socket.create_connection(('127.0.0.1', port))
+  skribber.setsockopt(socket.IPPROTO_TCP, socket.TCP_NODELAY, 1)
+if '--record' in sys.argv:
+  recording = open(sys.argv[sys.argv.index('--record') + 1], 'ab')
+
+capture_Img = cv2.VideoCapture(1)
+mp_hands = mp.solutions.hands
+
+# model
+hands = mp_hands.Hands(static_image_mode=True, min_detection_confidence=0.3)
+
+# Skribber pauses the streamer instead of stopping it, so turning detection on again skips this slow start
+paused = False
+control_buffer = b''
+last_heartbeat = 0.0
+
+def read_controls():
+  global paused, control_buffer
+  while select.select([skribber], [], [], 0)[0]:
+    data = skribber.recv(64)
+    if not data:
+      raise OSError('Skribber closed the connection')
+    control_buffer += data
+  while len(control_buffer) >= 4:
+    frame_type, _, length = HEARTBEAT_FRAME.unpack_from(control_buffer)
+    if len(control_buffer) < 4 + length:
+      break
+    if frame_type == FRAME_CONTROL and length >= 1:
+      paused = control_buffer[4] == CONTROL_PAUSE
+    control_buffer = control_buffer[4 + length:]
+
+def send_heartbeat():
+  global last_heartbeat
+  if time.monotonic() - last_heartbeat >= HEARTBEAT_INTERVAL:
+    skribber.sendall(HEARTBEAT_FRAME.pack(FRAME_HEARTBEAT, PROTOCOL_VERSION, 0))
+    last_heartbeat = time.monotonic()
+
+
+while True:
+
+  if skribber is not None:
+    try:
+      read_controls()
+      send_heartbeat() # also tells Skribber the streamer is ready
+    except OSError:
+      break # Skribber stopped listening
+    if paused:
+      time.sleep(0.1)
+      continue
+
+  data_aux = []
+
+  ret, frame = capture_Img.read()
+  captured_micros = time.time_ns() // 1000 # Skribber measures gesture latency from here
+  if not ret:
+    log("Failed to capture image")
+    time.sleep(FRAME_INTERVAL)
+    continue
+
+  frame_rgb = cv2.cvtColor(frame, cv2.COLOR_BGR2RGB)
+
+  results = hands.process(frame_rgb)
+  if results.multi_hand_landmarks: # if a hand is detected
+    for hand_landmarks in results.multi_hand_landmarks:
+       for i in range(len(hand_landmarks.landmark)):
+          data_aux.append(hand_landmarks.landmark[i].x)
+          data_aux.append(hand_landmarks.landmark[i].y)
+
+    # Ensure the correct number of features - only 1 hand needs to be tracked
+    if len(data_aux) == 42: # 21 landmarks * 2 (x and y points)
+      frame_bytes = LANDMARK_FRAME.pack(FRAME_LANDMARKS, PROTOCOL_VERSION, LANDMARK_FRAME.size - 4,
+                                        captured_micros, *data_aux)
+      if recording is not None:
+        recording.write(frame_bytes)
+      if skribber is not None:
+        try:
+          skribber.sendall(frame_bytes)
+        except OSError:
+          break # Skribber stopped listening
+    else:
+       log(f"{len(data_aux)} features")
+
+  time.sleep(FRAME_INTERVAL) # no window to wait on, Skribber stops the streamer by closing the connection
+
+if skribber is not None:
+  skribber.close()
+if recording is not None:
+  recording.close()
+capture_Img.release() # release memory
@@ -1,4 +1,11 @@
-print("Detecting Gestures")
+import sys
+
+# tries the trained model out on the camera, Skribber itself uses stream_landmarks.py and the exported model
+# diagnostics go to stderr, predictions to stdout
+def log(message):
+  print(message, file=sys.stderr, flush=True)
+
+log("Detecting Gestures")
 
 import cv2
 import mediapipe as mp
@@ -31,7 +38,7 @@ while True:
 
   ret, frame = capture_Img.read()
   if not ret:
-    print("Failed to capture image", flush=True)
+    log("Failed to capture image")
     continue
   
   H, W, _ = frame.shape
@@ -66,13 +73,15 @@ while True:
       x2 = (int) (max(x_) * W)
       y2 = (int) (max(y_) * H)
 
-      prediction = model.predict([np.asarray(data_aux)])
-      print(prediction[0], flush=True)
+      probabilities = model.predict_proba([np.asarray(data_aux)])[0]
+      best = int(np.argmax(probabilities))
+      prediction = [model.classes_[best]]
+      print("%s (%.0f%%)" % (prediction[0], probabilities[best] * 100), flush=True)
 
       cv2.rectangle(frame, (x1, y1), (x2, y2), (0, 0, 0), 4)
       cv2.putText(frame, prediction[0], (x1, y1), cv2.FONT_HERSHEY_SIMPLEX, 1.3, (0, 255, 0), 3, cv2.LINE_AA)
     else:
-       print(f"{len(data_aux)} features", flush=True)
+       log(f"{len(data_aux)} features")
 
   cv2.imshow('frame', frame)
   if cv2.waitKey(800) == ord('q'):  # wait 800ms between each frame
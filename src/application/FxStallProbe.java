@@ -0,0 +1,42 @@
+package application;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javafx.application.Platform;
+
+// Measures how long work posted to the FX thread waits before it runs. A probe is posted every PERIOD_MILLIS, the next
+// one only after the last has run, so a long stall is measured once instead of by every probe queued behind it.
+public class FxStallProbe {
+  private static final long PERIOD_MILLIS = 100;
+  private static final long STALL_THRESHOLD_MICROS = 50_000; // a few dropped frames, committed as a stall event
+
+  private final ScheduledExecutorService executor;
+
+  public FxStallProbe() {
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "skrib-fx-probe");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public void start() {
+    executor.schedule(this::post, PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private void post() {
+    long posted = System.nanoTime();
+    Platform.runLater(() -> {
+      Metrics.fxDelay((System.nanoTime() - posted) / 1000, STALL_THRESHOLD_MICROS);
+      if (!executor.isShutdown()) {
+        executor.schedule(this::post, PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+      }
+    });
+  }
+}
@@ -0,0 +1,242 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+
+// Keeps the hand gesture pipeline alive: the landmark streamer process, the socket it connects to and the in process
+// classifier. The streamer can be started early and paused, so turning detection on doesn't wait for a cold
+// MediaPipe start. A watchdog restarts a streamer that crashed, never got ready or stopped sending heartbeats.
+// All lifecycle changes run on one engine thread.
+public class GestureEngineService {
+  private static final long WATCHDOG_PERIOD_MILLIS = 1000;
+  private static final long STARTUP_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60); // cold MediaPipe imports are slow
+  private static final long HEARTBEAT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+  private static final int MAX_RESTARTS = 3; // in a row, without ever getting healthy in between
+  private static final int QUEUE_CAPACITY = 4; // frames waiting for the classifier, older ones are dropped
+  private static final int OUTPUT_LINES = 20; // last lines of the streamer's output, printed when it fails
+
+  public enum State { STOPPED, STARTING, PAUSED, RUNNING, FAILED }
+
+  private final String python;
+  private final String streamer;
+  private final Path model;
+  private final GestureClassifier.Listener listener; // called on the classifier thread
+  private final Consumer<State> stateListener; // called on the FX thread
+  private final ScheduledExecutorService engine;
+  private final LandmarkQueue queue = new LandmarkQueue(QUEUE_CAPACITY);
+  private final Deque<String> recentOutput = new ArrayDeque<>(); // guarded by itself, filled by the diagnostics thread
+
+  // only touched on the engine thread
+  private GestureClassifier classifier;
+  private Process process;
+  private GestureChannel channel;
+  private long startedNanos;
+  private int restarts;
+  private boolean running; // detection is turned on
+  private State state = State.STOPPED;
+
+  public GestureEngineService(String python, String streamer, Path model, GestureClassifier.Listener listener,
+      Consumer<State> stateListener) {
+    this.python = python;
+    this.streamer = streamer;
+    this.model = model;
+    this.listener = listener;
+    this.stateListener = stateListener;
+    engine = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "skrib-gesture-engine");
+      thread.setDaemon(true);
+      return thread;
+    });
+    engine.scheduleWithFixedDelay(() -> {
+      try {
+        checkHealth();
+      } catch (RuntimeException e) {
+        e.printStackTrace(); // an exception would cancel the watchdog for good
+      }
+    }, WATCHDOG_PERIOD_MILLIS, WATCHDOG_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  // Start the streamer paused in the background, so detection is ready when it's turned on
+  public void prewarm() {
+    engine.execute(this::ensureStarted);
+  }
+
+  public void resume() {
+    engine.execute(() -> {
+      running = true;
+      restarts = 0; // the user asked again, give a failed streamer another chance
+      ensureStarted();
+      if (channel != null) {
+        channel.setRunning(true);
+      }
+      updateState();
+    });
+  }
+
+  // Stop classifying but keep the streamer warm
+  public void pause() {
+    engine.execute(() -> {
+      running = false;
+      if (channel != null) {
+        channel.setRunning(false);
+      }
+      queue.clear();
+      updateState();
+    });
+  }
+
+  public long getDroppedFrames() {
+    return queue.getDroppedFrames();
+  }
+
+  public void shutdown() {
+    engine.execute(this::stopStreamer);
+    engine.shutdown();
+    try {
+      engine.awaitTermination(2, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    queue.close(); // ends the classifier thread
+  }
+
+  private void ensureStarted() {
+    if (process != null) {
+      return;
+    }
+    try {
+      if (classifier == null) {
+        classifier = new GestureClassifier(RandomForestModel.read(model));
+        Thread classifierThread = new Thread(() -> {
+          try {
+            classifier.run(queue, listener);
+          } catch (IOException e) {
+            e.printStackTrace();
+          }
+        }, "skrib-gesture-classifier");
+        classifierThread.setDaemon(true);
+        classifierThread.start();
+      }
+
+      channel = new GestureChannel(queue);
+      channel.setRunning(running);
+      int port = channel.open();
+      ProcessBuilder pb = new ProcessBuilder(python, streamer, "--port", String.valueOf(port));
+      pb.redirectErrorStream(true); // the output only carries diagnostics, frames go through the socket
+      process = pb.start();
+      channel.start();
+      drainDiagnostics(process);
+      startedNanos = System.nanoTime();
+      setState(State.STARTING);
+    } catch (IOException | IllegalArgumentException e) {
+      e.printStackTrace();
+      stopStreamer();
+      setState(State.FAILED);
+    }
+  }
+
+  private void checkHealth() {
+    if (process == null) {
+      return;
+    }
+    long now = System.nanoTime();
+    long lastFrame = channel.getLastFrameNanos();
+    boolean hung = lastFrame == 0 ? now - startedNanos > STARTUP_TIMEOUT_NANOS : now - lastFrame > HEARTBEAT_TIMEOUT_NANOS;
+    if (!process.isAlive() || hung) {
+      System.err.println("Gesture streamer " + (process.isAlive() ? "stopped responding" : "exited")
+          + ", restarting. Its last output:" + takeRecentOutput());
+      stopStreamer();
+      if (++restarts > MAX_RESTARTS) {
+        setState(State.FAILED);
+      } else {
+        ensureStarted();
+      }
+      return;
+    }
+    if (lastFrame != 0) {
+      restarts = 0;
+      updateState();
+    }
+  }
+
+  private void stopStreamer() {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+    if (process != null) {
+      process.destroy();
+      try {
+        if (!process.waitFor(1, TimeUnit.SECONDS)) {
+          process.destroyForcibly(); // hung, e.g. stuck on the camera
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      process = null;
+    }
+    queue.clear();
+    setState(State.STOPPED);
+  }
+
+  // Ready once the streamer's first frame arrived
+  private void updateState() {
+    if (process == null) {
+      return;
+    }
+    if (channel.getLastFrameNanos() == 0) {
+      setState(State.STARTING);
+    } else {
+      setState(running ? State.RUNNING : State.PAUSED);
+    }
+  }
+
+  private void setState(State newState) {
+    if (state != newState) {
+      state = newState;
+      Platform.runLater(() -> stateListener.accept(newState));
+    }
+  }
+
+  // Reads the streamer's diagnostics and keeps only the last lines, they're printed when the streamer fails
+  private void drainDiagnostics(Process process) {
+    Thread thread = new Thread(() -> {
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          synchronized (recentOutput) {
+            if (recentOutput.size() == OUTPUT_LINES) {
+              recentOutput.removeFirst();
+            }
+            recentOutput.addLast(line);
+          }
+        }
+      } catch (IOException e) {
+        // the process was stopped
+      }
+    }, "skrib-gesture-diagnostics");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private String takeRecentOutput() {
+    StringBuilder output = new StringBuilder();
+    synchronized (recentOutput) {
+      for (String line : recentOutput) {
+        output.append(System.lineSeparator()).append("  ").append(line);
+      }
+      recentOutput.clear();
+    }
+    return output.length() > 0 ? output.toString() : " none";
+  }
+}
@@ -0,0 +1,130 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+
+// Read only view for notes above the large note threshold, shown in place of the HTMLEditor.
+// The ListView only creates cells for the visible lines and each cell decodes its own line from the mapped file,
+// so the note shows up as soon as its first lines are indexed and scrolls smoothly however long it is.
+public class LargeNoteView extends ListView<Integer> {
+  private static final double LINE_HEIGHT = 20; // fixed, so lines never have to be measured
+
+  private final Consumer<IOException> errorHandler; // called on the FX thread when the note can't be mapped
+  private final IntConsumer lineCountHandler; // called on the FX thread as indexing finds more lines
+  private final ExecutorService indexer;
+
+  private Path path; // note that is shown, null when closed
+  private MappedTextDocument document;
+  private LineList lines = new LineList();
+
+  public LargeNoteView(Consumer<IOException> errorHandler, IntConsumer lineCountHandler) {
+    this.errorHandler = errorHandler;
+    this.lineCountHandler = lineCountHandler;
+    indexer = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "skrib-large-note-indexer");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    getStyleClass().add("large-note-view");
+    setFixedCellSize(LINE_HEIGHT);
+    setItems(lines);
+    setCellFactory(_ -> new ListCell<>() {
+      @Override
+      protected void updateItem(Integer line, boolean empty) {
+        super.updateItem(line, empty);
+        setText(empty || line == null || document == null ? null : document.line(line));
+      }
+    });
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  // Map the note and index it in the background, lines appear as they are found
+  public void open(Path path) {
+    close();
+    this.path = path;
+    indexer.execute(() -> {
+      MappedTextDocument opened;
+      try {
+        opened = new MappedTextDocument(path);
+      } catch (IOException e) {
+        e.printStackTrace();
+        Platform.runLater(() -> {
+          if (path.equals(this.path)) {
+            errorHandler.accept(e);
+          }
+        });
+        return;
+      }
+      Platform.runLater(() -> {
+        if (path.equals(this.path) && document == null) {
+          document = opened;
+        } else {
+          opened.close(); // another note was opened in the meantime
+        }
+      });
+      boolean more = true;
+      while (more) {
+        more = opened.indexNext();
+        int lineCount = opened.getLineCount();
+        Platform.runLater(() -> {
+          if (document == opened) {
+            lines.grow(lineCount);
+            lineCountHandler.accept(lineCount);
+          }
+        });
+      }
+    });
+  }
+
+  // Forget the shown note, a running indexer stops at its next step
+  public void close() {
+    if (document != null) {
+      document.close();
+      document = null;
+    }
+    path = null;
+    lines = new LineList();
+    setItems(lines);
+  }
+
+  public void shutdown() {
+    indexer.shutdownNow();
+  }
+
+  // Line numbers 0 to size - 1 without storing them, so the list costs nothing however many lines there are
+  private static class LineList extends ObservableListBase<Integer> {
+    private int size;
+
+    @Override
+    public Integer get(int index) {
+      return index;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    private void grow(int newSize) {
+      if (newSize > size) {
+        beginChange();
+        nextAdd(size, newSize);
+        size = newSize;
+        endChange();
+      }
+    }
+  }
+}
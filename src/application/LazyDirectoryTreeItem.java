@@ -0,0 +1,135 @@
+package application;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javafx.collections.ListChangeListener;
+import javafx.scene.control.TreeItem;
+
+// TreeItem for a vault directory which lists its children only the first time it is expanded
+public class LazyDirectoryTreeItem extends TreeItem<NoteNode> {
+  private final DirectoryScanner scanner;
+  private final NoteTreeIndex index;
+
+  private boolean loadRequested; // listing has been handed to the scanner
+  private boolean loaded; // listing has finished
+  private Set<String> knownNames; // names of the children while the listing runs, so nothing is added twice
+
+  public LazyDirectoryTreeItem(Path directory, DirectoryScanner scanner, NoteTreeIndex index) {
+    super(new NoteNode(directory, true));
+    this.scanner = scanner;
+    this.index = index;
+
+    expandedProperty().addListener((_, _, expanded) -> {
+      if (expanded) {
+        loadChildren();
+      }
+    });
+
+    // every child added or removed, by the listing or by the controller, keeps the path index in sync
+    getChildren().addListener((ListChangeListener<TreeItem<NoteNode>>) change -> {
+      while (change.next()) {
+        for (TreeItem<NoteNode> removed : change.getRemoved()) {
+          index.remove(removed);
+        }
+        for (TreeItem<NoteNode> added : change.getAddedSubList()) {
+          index.add(added);
+        }
+      }
+    });
+  }
+
+  public Path getDirectory() {
+    return getValue().getPath();
+  }
+
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  // a directory stays expandable until its listing shows it is empty
+  @Override
+  public boolean isLeaf() {
+    return loaded && getChildren().isEmpty();
+  }
+
+  // Start listing the directory in the background if that hasn't happened yet
+  public void loadChildren() {
+    if (loadRequested) {
+      return;
+    }
+    loadRequested = true;
+
+    knownNames = new HashSet<>();
+    for (TreeItem<NoteNode> child : getChildren()) {
+      knownNames.add(child.getValue().getName()); // e.g. added by createNewFile before the first expand
+    }
+
+    // show what the catalog knows right away, the listing then adds what's new and drops what's gone
+    List<NoteStore.Entry> cached = scanner.cachedListing(getDirectory());
+    Set<String> unconfirmed = new HashSet<>();
+    for (NoteStore.Entry entry : cached) {
+      if (!knownNames.contains(entry.path().getFileName().toString())) {
+        unconfirmed.add(entry.path().getFileName().toString());
+      }
+    }
+    addBatch(cached);
+    scanner.scan(getDirectory(), batch -> {
+      for (NoteStore.Entry entry : batch) {
+        unconfirmed.remove(entry.path().getFileName().toString());
+      }
+      addBatch(batch);
+    }, () -> {
+      if (!unconfirmed.isEmpty()) {
+        getChildren().removeIf(child -> unconfirmed.contains(child.getValue().getName()));
+      }
+      loaded = true;
+      knownNames = null;
+    });
+  }
+
+  // Add an entry that appeared on disk, a directory that was never listed picks it up when it's expanded
+  public void addChild(Path path, boolean isDirectory) {
+    if (!loadRequested) {
+      return;
+    }
+    if (knownNames != null ? !knownNames.add(path.getFileName().toString()) : index.get(path) != null) {
+      return;
+    }
+    getChildren().add(createChild(path, isDirectory));
+  }
+
+  // List the directory again and apply the difference, used when change events for it were lost
+  public void rescan() {
+    if (!loaded) {
+      return; // a listing that is still running already sees the current state
+    }
+    List<NoteStore.Entry> entries = new ArrayList<>();
+    scanner.scan(getDirectory(), entries::addAll, () -> {
+      Set<Path> paths = new HashSet<>();
+      for (NoteStore.Entry entry : entries) {
+        paths.add(entry.path());
+        addChild(entry.path(), entry.directory());
+      }
+      getChildren().removeIf(child -> !paths.contains(child.getValue().getPath()));
+    });
+  }
+
+  private void addBatch(List<NoteStore.Entry> batch) {
+    List<TreeItem<NoteNode>> items = new ArrayList<>(batch.size());
+    for (NoteStore.Entry entry : batch) {
+      if (knownNames.add(entry.path().getFileName().toString())) {
+        items.add(createChild(entry.path(), entry.directory()));
+      }
+    }
+    // one change event per batch instead of one per child
+    getChildren().addAll(items);
+  }
+
+  private TreeItem<NoteNode> createChild(Path path, boolean isDirectory) {
+    return isDirectory ? new LazyDirectoryTreeItem(path, scanner, index) : new TreeItem<>(new NoteNode(path, false));
+  }
+}
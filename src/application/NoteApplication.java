@@ -4,40 +4,59 @@ import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
-import javafx.scene.image.Image;
 import javafx.stage.Stage;
 
 public class NoteApplication extends Application {
+  private Scene1Controller controller;
+
   @Override
   public void start(Stage primaryStage) {
     try {
-      // Load FXML file for the main scene
+      Startup.mark("toolkit");
+      // Load FXML file for the main scene, the vault is opened once the window is shown
       FXMLLoader loader = new FXMLLoader(getClass().getResource("scene1.fxml"));
       Parent root = loader.load();
       Scene scene = new Scene(root);
+      Startup.mark("fxml");
 
-      // Set application icon
-      Image appIcon = new Image("images/icon.png");
-      primaryStage.getIcons().add(appIcon);
-
-      // Load the CSS file
-      String css = this.getClass().getResource("/styles/lightmode.css").toExternalForm();
-      scene.getStylesheets().add(css);
+      // icon and CSS were loaded in the background while the toolkit started
+      Startup.awaitPreloaded();
+      primaryStage.getIcons().add(ResourceCache.icon());
+      scene.getStylesheets().add(ResourceCache.stylesheet(ResourceCache.LIGHT_MODE_STYLESHEET));
 
-      Scene1Controller controller = loader.getController();
+      controller = loader.getController();
       controller.initializeZoomHandlers((scene));
 
+      // give the user a chance to save unsaved changes before the window closes
+      primaryStage.setOnCloseRequest(event -> {
+        if (!controller.confirmUnsavedChanges()) {
+          event.consume();
+        }
+      });
+
       // Title of the primary stage
       primaryStage.setTitle("Skrib");
       primaryStage.setScene(scene);
+      Startup.measureFirstPaint(scene);
       primaryStage.show();
+      Startup.mark("shown");
 
+      controller.openStoredVault();
     } catch(Exception e) {
       e.printStackTrace();
     }
   }
   
+  @Override
+  public void stop() {
+    // let background work such as pending autosaves finish before exiting
+    if (controller != null) {
+      controller.shutdown();
+    }
+  }
+
   public static void main(String[] args) {
+    Startup.begin();
     launch(args);
   }
 }
\ No newline at end of file
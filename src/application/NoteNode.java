@@ -0,0 +1,34 @@
+package application;
+
+import java.nio.file.Path;
+
+// Value of a TreeView item: the note or folder's path, with its name and kind worked out once
+public final class NoteNode {
+  private final Path path;
+  private final String name;
+  private final boolean directory;
+
+  public NoteNode(Path path, boolean directory) {
+    this.path = path;
+    this.name = path.toFile().getName();
+    this.directory = directory;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean isDirectory() {
+    return directory;
+  }
+
+  // shown by the TreeView cells
+  @Override
+  public String toString() {
+    return name;
+  }
+}
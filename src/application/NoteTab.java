@@ -0,0 +1,106 @@
+package application;
+
+import java.nio.file.Path;
+
+import javafx.scene.control.Tab;
+import javafx.scene.control.Tooltip;
+import javafx.scene.web.HTMLEditor;
+
+// A note open in the editor tabs. While it has a live editor the note is the editor's document, once the editor was
+// handed to another tab the note is kept as an HTML snapshot and put into an editor again when the tab is shown.
+// Large notes are shown in the read only large note view and never get an editor.
+public final class NoteTab {
+  private final Path path;
+  private final Tab tab;
+  private final boolean large;
+  private final DirtyTracker dirtyTracker = new DirtyTracker(); // unsaved changes survive the editor being taken away
+  private HTMLEditor editor; // null while the tab has no live editor
+  private String snapshot; // the note while the tab has no live editor
+  private int contentLength; // characters of the note when it was last loaded, saved or put into a snapshot
+
+  public NoteTab(Path path, String content) {
+    this(path, false);
+    snapshot = content;
+    contentLength = content.length();
+    dirtyTracker.loaded(ContentHash.of(content));
+  }
+
+  public NoteTab(Path path, LargeNoteView largeNoteView) {
+    this(path, true);
+    tab.setContent(largeNoteView);
+  }
+
+  private NoteTab(Path path, boolean large) {
+    this.path = path;
+    this.large = large;
+    tab = new Tab(path.getFileName().toString());
+    tab.setTooltip(new Tooltip(path.toString()));
+    tab.setUserData(this);
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  public Tab getTab() {
+    return tab;
+  }
+
+  public boolean isLarge() {
+    return large;
+  }
+
+  public DirtyTracker getDirtyTracker() {
+    return dirtyTracker;
+  }
+
+  public HTMLEditor getEditor() {
+    return editor;
+  }
+
+  public boolean isLive() {
+    return editor != null;
+  }
+
+  // The note as the user sees it, unsaved edits included
+  public String getContent() {
+    return editor != null ? editor.getHtmlText() : snapshot;
+  }
+
+  // Whether the note differs from its file, large notes are read only and never do
+  public boolean hasUnsavedChanges() {
+    return !large && dirtyTracker.isDirty(getContent());
+  }
+
+  public int getContentLength() {
+    return contentLength;
+  }
+
+  // Called after the note was saved, so the memory its editor needs is known without reading the document
+  public void setContentLength(int contentLength) {
+    this.contentLength = contentLength;
+  }
+
+  // Put the snapshot into an editor and show it, the document is built again from the HTML
+  void attach(HTMLEditor liveEditor) {
+    editor = liveEditor;
+    editor.setHtmlText(snapshot);
+    snapshot = null;
+    tab.setContent(editor);
+  }
+
+  // Take the editor away and keep the note, unsaved edits included, as a snapshot
+  HTMLEditor detach() {
+    snapshot = editor.getHtmlText();
+    contentLength = snapshot.length();
+    return release();
+  }
+
+  // Take the editor away from a tab that is being closed, nothing is kept
+  HTMLEditor release() {
+    HTMLEditor released = editor;
+    editor = null;
+    tab.setContent(null);
+    return released;
+  }
+}
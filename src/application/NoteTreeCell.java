@@ -0,0 +1,38 @@
+package application;
+
+import java.util.function.Supplier;
+
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.Label;
+import javafx.scene.control.TreeCell;
+
+// Tree cell with the name of a note or folder, folders also show how many notes and words they contain
+public class NoteTreeCell extends TreeCell<NoteNode> {
+  private final Supplier<VaultStatistics> statistics; // null until the vault has been totalled
+  private final Label totals = new Label();
+
+  public NoteTreeCell(Supplier<VaultStatistics> statistics) {
+    this.statistics = statistics;
+    totals.getStyleClass().add("tree-totals");
+    setContentDisplay(ContentDisplay.RIGHT);
+  }
+
+  @Override
+  protected void updateItem(NoteNode node, boolean empty) {
+    super.updateItem(node, empty);
+    if (empty || node == null) {
+      setText(null);
+      setGraphic(null);
+      return;
+    }
+    setText(node.getName());
+    VaultStatistics current = statistics.get();
+    VaultStatistics.Totals directoryTotals = node.isDirectory() && current != null ? current.get(node.getPath()) : null;
+    if (directoryTotals != null) {
+      totals.setText(String.format("%,d · %,d words", directoryTotals.notes(), directoryTotals.words()));
+      setGraphic(totals);
+    } else {
+      setGraphic(null);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package application;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import javafx.scene.control.TreeItem;
+
+// Maps every listed path of the vault to its TreeItem, kept up to date by LazyDirectoryTreeItem
+public class NoteTreeIndex {
+  private final Map<Path, TreeItem<NoteNode>> items = new HashMap<>();
+
+  public TreeItem<NoteNode> get(Path path) {
+    return items.get(path);
+  }
+
+  public void add(TreeItem<NoteNode> item) {
+    items.put(item.getValue().getPath(), item);
+  }
+
+  // forget an item and everything listed below it
+  public void remove(TreeItem<NoteNode> item) {
+    if (items.get(item.getValue().getPath()) == item) {
+      items.remove(item.getValue().getPath());
+    }
+    for (TreeItem<NoteNode> child : item.getChildren()) {
+      remove(child);
+    }
+  }
+
+  public void clear() {
+    items.clear();
+  }
+}
@@ -0,0 +1,45 @@
+package application;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javafx.scene.image.Image;
+
+// Images and stylesheets of the app, decoded or resolved once and shared by every window and alert. Images can be
+// decoded on any thread, so startup preloads them while the FX toolkit is starting.
+public final class ResourceCache {
+  public static final String ICON = "images/icon.png";
+  public static final String LIGHT_MODE_STYLESHEET = "/styles/lightmode.css";
+
+  private static final Map<String, Image> IMAGES = new ConcurrentHashMap<>();
+  private static final Map<String, String> STYLESHEETS = new ConcurrentHashMap<>();
+
+  private ResourceCache() {}
+
+  // Decoded the first time it's asked for, a caller asking while it's decoded waits for it instead of decoding it again
+  public static Image image(String path) {
+    return IMAGES.computeIfAbsent(path, Image::new);
+  }
+
+  public static Image icon() {
+    return image(ICON);
+  }
+
+  // URL of a stylesheet on the class path, as scenes and parents take it
+  public static String stylesheet(String path) {
+    return STYLESHEETS.computeIfAbsent(path, key -> {
+      URL url = ResourceCache.class.getResource(key);
+      if (url == null) {
+        throw new IllegalArgumentException("Missing stylesheet " + key);
+      }
+      return url.toExternalForm();
+    });
+  }
+
+  // Everything the first window needs
+  public static void preload() {
+    icon();
+    stylesheet(LIGHT_MODE_STYLESHEET);
+  }
+}
@@ -1,45 +1,66 @@
 package application;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 import java.util.prefs.Preferences;
 
 import javafx.application.Platform;
+import javafx.event.EventHandler;
 import javafx.fxml.FXML;
+import javafx.geometry.Side;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Label;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.control.SplitPane;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TabPane;
+import javafx.scene.control.TextField;
 import javafx.scene.control.TextInputDialog;
+import javafx.scene.control.Tooltip;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
-import javafx.scene.image.Image;
 import javafx.scene.web.HTMLEditor;
 import javafx.stage.DirectoryChooser;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
 
 // for zoom handling
 import javafx.scene.Scene;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.web.WebView;
 
 public class Scene1Controller {
   // Injecting FXML elements to the controller class
   @FXML
-  private HTMLEditor htmlEditor; // User makes their notes here
+  private TabPane editorTabs; // A tab per open note, the user makes their notes here
 
   @FXML
-  private TreeView<String> treeView; // Displays names of notes
+  private TreeView<NoteNode> treeView; // Displays names of notes
   
   @FXML
   private ScrollPane treeScrollPane; // Treeview Scroll Pane
@@ -59,51 +80,155 @@ public class Scene1Controller {
   @FXML
   private CheckMenuItem detectHandGestures; // Menu item to toggle detect hand gestures
 
+  @FXML
+  private CheckMenuItem statsMenuItem; // Menu item to show the performance stats next to the editor
+
   @FXML
   private Label predictionLabel; // shows model's output
 
+  @FXML
+  private Label statisticsLabel; // Notes, words and size of the whole vault
+
+  @FXML
+  private HBox deleteProgressBox; // Shown while a deleted folder is purged in the background
+
+  @FXML
+  private Label deleteProgressLabel;
+
+  @FXML
+  private ProgressBar deleteProgressBar;
+
+  @FXML
+  private HBox archiveProgressBox; // Shown while the vault is exported or an archive is imported
+
+  @FXML
+  private Label archiveProgressLabel;
+
+  @FXML
+  private ProgressBar archiveProgressBar;
+
   @FXML
   private SplitPane splitPane; // SpllitPane to manage treeview and HTMLEditor
+
+  @FXML
+  private TextField searchField; // Full text search over the vault
   
 
 
-  private Process pythonProcess;
-  private Thread pythonReaderThread;
+  private final GestureDispatcher gestureDispatcher = new GestureDispatcher(new GestureDispatcher.Commands() {
+    @Override
+    public void scrollBy(int pixels) {
+      Scene1Controller.this.scrollBy(pixels);
+    }
+
+    @Override
+    public void zoomBy(double factor) {
+      Scene1Controller.this.zoomBy(factor);
+    }
+
+    @Override
+    public void nextNote() {
+      Scene1Controller.this.nextNote();
+    }
+
+    @Override
+    public void prevNote() {
+      Scene1Controller.this.prevNote();
+    }
+
+    @Override
+    public void showPrediction(Gesture gesture, float confidence) {
+      Scene1Controller.this.showPrediction(gesture, confidence);
+    }
+  }, Platform::runLater, getGestureMinConfidence(), getGestureAgreeingFrames()); // gates and coalesces predictions
+  private final Tooltip gestureLatencyTooltip = new Tooltip("No gestures yet");
+  private final GestureEngineService gestureEngine = new GestureEngineService(getGesturePython(), LANDMARK_STREAMER,
+      GESTURE_MODEL, gestureDispatcher::gestureReceived, this::showGestureState); // Streamer process, classifier and watchdog
+
+  private final DirectoryScanner directoryScanner = new DirectoryScanner(); // Lists vault directories off the FX thread
+  private final NoteTreeIndex treeIndex = new NoteTreeIndex(); // TreeItem of every listed path
+  private final SearchService searchService = new SearchService(); // Full text index of the vault
+  private final CatalogService catalogService = new CatalogService(this::showStatistics); // Metadata of every note, read instead of walking the vault at startup
+  private VaultStatistics vaultStatistics; // Totals per folder, shown in the tree
+  private VaultCatalog vaultCatalog; // Catalog of the open vault
+  private final TrashService trashService = new TrashService(this::showDeleteProgress); // Deletes folders in the background
+  private final ArchiveService archiveService = new ArchiveService(getArchiveCompressionLevel(), this::showArchiveProgress); // Exports and imports whole vaults
+  private final VersionHistory versionHistory = new VersionHistory(); // Earlier versions of every saved note
+  private final ContextMenu searchResultsMenu = new ContextMenu(); // Shows the hits below the search field
+  private VaultWatcher vaultWatcher; // Picks up changes made to the vault outside of Skribber
+  private final NoteLoader noteLoader = new NoteLoader(getNoteCacheSize() * 1024 * 1024, getLargeNoteThreshold()); // Async reads with an LRU cache
+  private Path pendingNote; // note being loaded, loads that finish after another note was picked are dropped
+  private boolean syncingSelection; // the tree selection follows the shown tab, which mustn't open the note again
+  private final LargeNoteView largeNoteView = new LargeNoteView(_ -> showLargeNoteError(), this::updateLineCount); // Read only view of huge notes
+  private final EditorViewControl editorView = new EditorViewControl(); // Zoom and scroll of the editor, batched per frame and remembered per note
+  private final EditorPool editorPool = new EditorPool(this::createEditor, getEditorMemoryBudget() * 1024 * 1024); // Live editors of the tabs
+  private NoteTab activeTab; // Tab that is shown
+  private HTMLEditor htmlEditor; // Editor of the shown tab, null while no note or a large note is shown
+  private int largeNoteLineCount; // Lines of the large note indexed so far
+  private final FxStallProbe fxStallProbe = new FxStallProbe(); // How long the FX thread keeps queued work waiting
+  private final FlightRecording flightRecording = new FlightRecording(); // Last minutes of the app, dumped on request
+  private final StatsPanel statsPanel = new StatsPanel(this::getStatsSummary); // Latencies of the hot paths
 
   private File storageDirectory; // User choice directory
+  private NoteStore noteStore; // Reads, writes, lists and deletes the notes of the open vault
   private File currentFile; // Reference to currently opened file
 
   private static final String PREF_KEY_DIRECTORY = "storageDirectoryPath"; // Key for accessing user's local storage for previously chosen directory
+  private static final String PREF_KEY_AUTOSAVE_QUIET_PERIOD = "autosaveQuietPeriodMillis"; // Key for the pause in typing before an autosave
+  private static final long DEFAULT_AUTOSAVE_QUIET_PERIOD = 750;
+  private static final String PREF_KEY_AUTOSAVE_DURABILITY = "autosaveDurability"; // Key for how hard autosave pushes notes to disk
+  private static final Duration WORD_COUNT_INTERVAL = Duration.millis(300); // Minimum time between two word counts
+  private static final DateTimeFormatter RECORDING_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+  private static final DateTimeFormatter ARCHIVE_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+  private static final int MAX_SEARCH_RESULTS = 20;
+  private static final String PREF_KEY_NOTE_CACHE_SIZE = "noteCacheMegabytes"; // Key for the memory cap of the note cache
+  private static final long DEFAULT_NOTE_CACHE_SIZE = 64;
+  private static final String PREF_KEY_LARGE_NOTE_THRESHOLD = "largeNoteThresholdKilobytes"; // Key for the size above which notes open read only
+  private static final long DEFAULT_LARGE_NOTE_THRESHOLD = 2048;
+  private static final String PREF_KEY_EDITOR_MEMORY = "editorMemoryMegabytes"; // Key for the memory the tabs' editors may use
+  private static final long DEFAULT_EDITOR_MEMORY = 256;
+  private static final String PREF_KEY_GESTURE_MIN_CONFIDENCE = "gestureMinConfidence"; // Key for how sure the classifier has to be
+  private static final float DEFAULT_GESTURE_MIN_CONFIDENCE = 0.6f;
+  private static final String PREF_KEY_GESTURE_AGREEING_FRAMES = "gestureAgreeingFrames"; // Key for the frames that must agree before a gesture fires
+  private static final int DEFAULT_GESTURE_AGREEING_FRAMES = 3;
+  private static final String PREF_KEY_FLIGHT_RECORDING = "flightRecording"; // Key for keeping a flight recording of the app
+  private static final String PREF_KEY_ARCHIVE_COMPRESSION = "archiveCompressionLevel"; // Key for how hard exported vaults are compressed
+  private static final int DEFAULT_ARCHIVE_COMPRESSION = 6;
+  private static final String PREF_KEY_GESTURE_PYTHON = "gesturePython"; // Key for the python that runs the landmark streamer
+  private static final String DEFAULT_GESTURE_PYTHON = "python";
+  private static final String PREF_KEY_GESTURE_PREWARM = "gesturePrewarm"; // Key for starting the gesture streamer with the app
+  private static final String LANDMARK_STREAMER = "./src/application/Find_Gesture/stream_landmarks.py";
+  private static final Path GESTURE_MODEL = Path.of("./src/application/Find_Gesture/model.bin");
+
+  // explicit saves always wait for the disk, autosave trades some durability for latency
+  private final AtomicNoteWriter noteWriter = new AtomicNoteWriter(AtomicNoteWriter.Durability.FULL);
+  private final AutosaveEngine autosaveEngine = new AutosaveEngine(() -> htmlEditor.getHtmlText(),
+      new AtomicNoteWriter(getAutosaveDurability()), () -> activeTab.getDirtyTracker(),
+      Duration.millis(getAutosaveQuietPeriod()), _ -> showAutosaveError());
+
+  private final WordCountService wordCountService = new WordCountService(
+      () -> htmlEditor != null ? htmlEditor.getHtmlText() : "",
+      WORD_COUNT_INTERVAL, this::updateWordCount);
+  private final EventHandler<KeyEvent> autosaveHandler = _ -> handleAutosaveEdit(); // registered while autosave is on
 
   private double[] dividerPositions; // To store previous dimensions of treeview
   
   public void initialize() { // Runs when application is loaded
-    storageDirectory = getStorageDirectory();
-    if (storageDirectory == null) {
-      System.err.println("Directory is not selected");
-      return;
-    } else {
-      // create the root TreeItem using the directory name.
-      TreeItem<String> rootItem = new TreeItem<>(storageDirectory.getName());
-      treeView.setRoot(rootItem);
-
-      // recursively populate the TreeView with subdirectories and files.
-      populateTreeView(rootItem, storageDirectory);
-    }
-
-    htmlEditor.setVisible(false); // hide the HTMLEditor initially
+    // the stored vault is opened by openStoredVault once the window is shown
+    treeView.setCellFactory(_ -> new NoteTreeCell(() -> vaultStatistics));
 
     // add a listener to the TreeView to handle file selection
-    treeView.getSelectionModel().selectedItemProperty().addListener((_, _, newValue) -> { // observable - 1st param, oldValue - 2nd param
-        if (newValue != null) {
-            TreeItem<String> selectedItem = newValue;
-            File selectedFile = new File(storageDirectory, getFilePath(selectedItem));
-            if (selectedFile.isFile()) {
-                loadFileContent(selectedFile);
-            }
+    treeView.getSelectionModel().selectedItemProperty().addListener((_, _, newValue) -> { // observable - 1st param
+        if (newValue != null && !newValue.getValue().isDirectory() && !syncingSelection) {
+            // opens the note in a tab of its own, unsaved changes of other notes stay in their tabs
+            loadFileContent(newValue.getValue().getPath().toFile());
         }
     });
 
+    // the selected tab gets a live editor from the pool
+    editorTabs.getSelectionModel().selectedItemProperty().addListener((_, _, tab) ->
+        showTab(tab == null ? null : (NoteTab) tab.getUserData()));
+
     // add a listener to the CheckMenuItem to enable or disable autosave feature
     autosaveMenuItem.selectedProperty().addListener((_, _, newValue) -> {
         if (newValue) {
@@ -116,174 +241,131 @@ public class Scene1Controller {
     // add a listener to the CheckMenuItem to start/stop hand detection process
     detectHandGestures.selectedProperty().addListener((_, _, newValue) -> {
       if(newValue) {
-        startPythonProcess();
+        gestureDispatcher.reset();
+        gestureEngine.resume();
       } else {
-        stopPythonProcess();
+        gestureEngine.pause(); // stays warm, turning it on again is instant
         predictionLabel.setText("Prediction: None");
       }
     });
+    predictionLabel.setTooltip(gestureLatencyTooltip);
 
-  }
-
-  private void startPythonProcess() {
-    if(pythonProcess != null && pythonProcess.isAlive()) {
-      return;
+    // latencies are always measured, the panel only shows them
+    statsMenuItem.selectedProperty().addListener((_, _, newValue) -> {
+      borderPane.setRight(newValue ? statsPanel : null);
+      statsPanel.setShowing(newValue);
+    });
+    fxStallProbe.start();
+    if (getFlightRecordingEnabled()) {
+      Startup.executor().execute(flightRecording::start); // starting the recorder takes a while, the window doesn't wait
     }
-
-    try {
-      ProcessBuilder pb = new ProcessBuilder("C:\\Users\\21aks\\AppData\\Local\\Programs\\Python\\Python38\\python.exe", "./src/application/Find_Gesture/test_classifier.py");
-      pb.redirectErrorStream(true);
-      pythonProcess = pb.start();
-
-      pythonReaderThread = new Thread(() -> {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(pythonProcess.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    System.out.println("Python output: " + line);
-                    String finalLine = line;
-                    Platform.runLater(() -> {
-                      predictionLabel.setText("Prediction: " + finalLine);
-                      handleGesture(finalLine);
-                    });
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-      });
-      pythonReaderThread.setDaemon(true);
-      pythonReaderThread.start();
-    } catch(IOException e) {
-      e.printStackTrace();
+    if (getGesturePrewarm()) {
+      gestureEngine.prewarm();
     }
-  }
 
-  private void stopPythonProcess() {
-    if(pythonProcess != null) {
-      pythonProcess.destroy();
-      pythonProcess = null;
-    }
+    // autosaved notes are reindexed and cached with the content that was written
+    autosaveEngine.setSaveListener((path, content) -> {
+      searchService.update(path, content);
+      catalogService.update(path, content);
+      versionHistory.record(path, content);
+      noteLoader.put(path, content);
+    });
 
-    if(pythonReaderThread != null && pythonReaderThread.isAlive()) {
-      pythonReaderThread.interrupt();
-      pythonReaderThread = null;
-    }
-  }
+    // search the vault as the user types
+    searchField.textProperty().addListener((_, _, query) -> {
+      if (query == null || query.isBlank()) {
+        searchResultsMenu.hide();
+      } else {
+        searchService.search(query, MAX_SEARCH_RESULTS, this::showSearchResults);
+      }
+    });
 
-  private void handleGesture(String gesture) {
-    if (gesture.equalsIgnoreCase("zoom in")) {
-      zoomIn();
-    } else if (gesture.equalsIgnoreCase("zoom out")) {
-      zoomOut();
-    } else if (gesture.equalsIgnoreCase("scroll up")) {
-      scrollUp();
-    } else if (gesture.equalsIgnoreCase("scroll down")) {
-      scrollDown();
-    } else if (gesture.equalsIgnoreCase("next note")) {
-      nextNote();
-    } else if (gesture.equalsIgnoreCase("prev note")) {
-      prevNote();
-    }
   }
 
-  private void zoomIn() {
-    WebView webView = (WebView) htmlEditor.lookup("WebView");
-    if(webView != null) {
-      webView.setZoom(webView.getZoom() * 1.1);
+  // Shows where the gesture engine is while detection is turned on
+  private void showGestureState(GestureEngineService.State state) {
+    if (!detectHandGestures.isSelected()) {
+      return;
+    }
+    switch (state) {
+      case STARTING -> predictionLabel.setText("Prediction: Starting...");
+      case RUNNING -> predictionLabel.setText("Prediction: None");
+      case FAILED -> {
+        // display an error alert to the user
+        Alert alert = new Alert(AlertType.ERROR);
+        alert.setTitle("Hand Gestures Stopped");
+        alert.setHeaderText(null);
+        alert.setContentText("Hand gesture detection could not be started. Check that Find_Gesture/model.bin exists and that the gesturePython preference points to a python with OpenCV and MediaPipe.");
+        alert.showAndWait();
+        detectHandGestures.setSelected(false);
+      }
+      default -> { }
     }
   }
 
-  private void zoomOut() {
-    WebView webView = (WebView) htmlEditor.lookup("WebView");
-    if(webView != null) {
-      webView.setZoom(webView.getZoom() / 1.1);
-    }
+  // Shows the classifier's latest prediction, the tooltip has how sure it was and the gesture latency so far
+  private void showPrediction(Gesture gesture, float confidence) {
+    predictionLabel.setText("Prediction: " + gesture.getLabel());
+    gestureLatencyTooltip.setText(String.format("Confidence %.0f%%, latency %s", confidence * 100,
+        gestureDispatcher.getLatency().summary()));
   }
 
-  private void scrollUp() {
-    WebView webView = (WebView) htmlEditor.lookup("WebView");
-    if (webView != null) {
-      webView.getEngine().executeScript("window.scrollBy(0, -100)");
-    }
+  private void zoomBy(double factor) {
+    editorView.zoomBy(factor);
   }
 
-  private void scrollDown() {
-    WebView webView = (WebView) htmlEditor.lookup("WebView");
-    if (webView != null) {
-      webView.getEngine().executeScript("window.scrollBy(0, 100)");
-    }
+  private void scrollBy(int pixels) {
+    editorView.scrollBy(pixels);
   }
 
   private void nextNote() {
-    TreeItem<String> selectedItem = treeView.getSelectionModel().getSelectedItem();
+    TreeItem<NoteNode> selectedItem = treeView.getSelectionModel().getSelectedItem();
     if (selectedItem != null) {
-      TreeItem<String> nextItem = getNextItem(selectedItem);
+      TreeItem<NoteNode> nextItem = getNextItem(selectedItem);
       if (nextItem != null) {
+        // selecting the note loads it through the selection listener
         treeView.getSelectionModel().select(nextItem);
-        File selectedFile = new File(storageDirectory, getFilePath(nextItem));
-        if (selectedFile.isFile()) {
-          loadFileContent(selectedFile);
-        }
       }
     }
   }
 
   private void prevNote() {
-    TreeItem<String> selectedItem = treeView.getSelectionModel().getSelectedItem();
+    TreeItem<NoteNode> selectedItem = treeView.getSelectionModel().getSelectedItem();
     if (selectedItem != null) {
-      TreeItem<String> prevItem = getPrevItem(selectedItem);
+      TreeItem<NoteNode> prevItem = getPrevItem(selectedItem);
       if (prevItem != null) {
         treeView.getSelectionModel().select(prevItem);
-        File selectedFile = new File(storageDirectory, getFilePath(prevItem));
-        if (selectedFile.isFile()) {
-          loadFileContent(selectedFile);
-        }
       }
     }
   }
 
-  private TreeItem<String> getNextItem(TreeItem<String> item) {
-    TreeItem<String> parent = item.getParent();
-    if (parent != null) {
-      int index = parent.getChildren().indexOf(item);
-      for (int i = index + 1; i < parent.getChildren().size(); i++) {
-        TreeItem<String> nextItem = parent.getChildren().get(i);
-        File nextFile = new File(storageDirectory, getFilePath(nextItem));
-        if (nextFile.isFile()) {
-          return nextItem;
-        }
-      }
+  // next sibling which is a note, the kind is cached on the node so no files are checked on disk
+  private TreeItem<NoteNode> getNextItem(TreeItem<NoteNode> item) {
+    TreeItem<NoteNode> nextItem = item.nextSibling();
+    while (nextItem != null && nextItem.getValue().isDirectory()) {
+      nextItem = nextItem.nextSibling();
     }
-    return null;
+    return nextItem;
   }
 
-  private TreeItem<String> getPrevItem(TreeItem<String> item) {
-    TreeItem<String> parent = item.getParent();
-    if (parent != null) {
-      int index = parent.getChildren().indexOf(item);
-      for (int i = index - 1; i >= 0; i--) {
-        TreeItem<String> prevItem = parent.getChildren().get(i);
-        File prevFile = new File(storageDirectory, getFilePath(prevItem));
-        if (prevFile.isFile()) {
-          return prevItem;
-        }
-      }
+  private TreeItem<NoteNode> getPrevItem(TreeItem<NoteNode> item) {
+    TreeItem<NoteNode> prevItem = item.previousSibling();
+    while (prevItem != null && prevItem.getValue().isDirectory()) {
+      prevItem = prevItem.previousSibling();
     }
-    return null;
+    return prevItem;
   }
 
   //       ----------------------------- EVENT HANDLERS ----------------------------- 
   public void initializeZoomHandlers(Scene scene) {
-    htmlEditor.addEventFilter(KeyEvent.KEY_PRESSED, event -> {
+    editorTabs.addEventFilter(KeyEvent.KEY_PRESSED, event -> { // reaches the editors of all tabs
         if (event.isControlDown()) {
-            WebView webView = (WebView) htmlEditor.lookup("WebView");
-            if (webView != null) {
-                if (event.getCode() == KeyCode.PLUS || event.getCode() == KeyCode.EQUALS) {
-                    webView.setZoom(webView.getZoom() * 1.1);
-                    event.consume();
-                } else if (event.getCode() == KeyCode.MINUS) {
-                    webView.setZoom(webView.getZoom() / 1.1);
-                    event.consume();
-                }
+            if (event.getCode() == KeyCode.PLUS || event.getCode() == KeyCode.EQUALS) {
+                editorView.zoomBy(1.1);
+                event.consume();
+            } else if (event.getCode() == KeyCode.MINUS) {
+                editorView.zoomBy(1 / 1.1);
+                event.consume();
             }
         }
     });
@@ -297,21 +379,68 @@ public class Scene1Controller {
     File selectedDirectory = selectDirectory();
     if(selectedDirectory != null) {
       storeDirectory(selectedDirectory);
-      storageDirectory = selectedDirectory;
-
       // update the treeview with new directory
-      TreeItem<String> rootItem = new TreeItem<>(storageDirectory.getName());
-      treeView.setRoot(rootItem);
-      populateTreeView(rootItem, storageDirectory);
+      openVault(selectedDirectory, VaultCatalog.open(selectedDirectory.toPath().toAbsolutePath()));
     }
   }
 
+  // Open the vault of the last session. Its directory and catalog are read in the background, the tree is filled in
+  // once they're there, unless the user opened another vault in the meantime.
+  public void openStoredVault() {
+    CompletableFuture.runAsync(() -> {
+      File directory = getStorageDirectory();
+      if (directory == null) {
+        System.err.println("Directory is not selected");
+        return;
+      }
+      VaultCatalog catalog = VaultCatalog.open(directory.toPath().toAbsolutePath());
+      Platform.runLater(() -> {
+        if (storageDirectory == null) {
+          openVault(directory, catalog);
+        }
+      });
+    }, Startup.executor()).exceptionally(e -> {
+      e.printStackTrace();
+      return null;
+    });
+  }
+
+  // Show a vault in the tree and open its index, history and watcher
+  private void openVault(File directory, VaultCatalog catalog) {
+    storageDirectory = directory;
+    noteStore = new NoteStore(directory.toPath(), noteWriter);
+    // populate the TreeView, directories are listed in the background as they are expanded
+    populateTreeView(directory, catalog);
+    searchService.open(directory.toPath());
+    versionHistory.open(directory.toPath());
+    watchVault(directory);
+  }
+
   // Save changes made to the file
   public void saveFileContent() {
-    if (currentFile != null) {
+    if (activeTab != null && activeTab.isLarge()) {
+      // large notes are shown read only, there's nothing to save
+      Alert alert = new Alert(AlertType.INFORMATION);
+      alert.setTitle("Read Only Skrib");
+      alert.setHeaderText(null);
+      alert.setContentText("Large Skribs are opened read only and can't be saved from Skribber.");
+      alert.showAndWait();
+    } else if (currentFile != null) {
       try {
+        DirtyTracker tracker = activeTab.getDirtyTracker();
+        DirtyTracker.Snapshot snapshot = tracker.snapshot();
+        Metrics.Timer timer = Metrics.start(Metrics.Operation.NOTE_SAVE);
         String content = htmlEditor.getHtmlText();
-        Files.write(currentFile.toPath(), content.getBytes());
+        noteStore.write(currentFile.toPath(), content);
+        timer.stop(String.format("%,d characters", content.length()));
+        BasicFileAttributes attributes = Files.readAttributes(currentFile.toPath(), BasicFileAttributes.class);
+        tracker.markSaved(snapshot, ContentHash.of(content), attributes.lastModifiedTime().toMillis(),
+            attributes.size());
+        activeTab.setContentLength(content.length());
+        searchService.update(currentFile.toPath(), content);
+        catalogService.update(currentFile.toPath(), content);
+        versionHistory.record(currentFile.toPath(), content);
+        noteLoader.put(currentFile.toPath(), content);
         // display a confirmation alert to the user
         Alert alert = new Alert(AlertType.INFORMATION);
         alert.setTitle("File Saved");
@@ -339,15 +468,10 @@ public class Scene1Controller {
 
   // Method to create a new file in the selected folder
   public void createNewFile() {
-    TreeItem<String> selectedItem = treeView.getSelectionModel().getSelectedItem();
+    TreeItem<NoteNode> selectedItem = treeView.getSelectionModel().getSelectedItem();
     if (selectedItem != null) {
-      File selectedDirectory;
-      if(selectedItem.getParent() == null) {
-        selectedDirectory = storageDirectory;
-      } else {
-        selectedDirectory = new File(storageDirectory, getFilePath(selectedItem));
-      }
-      if (selectedDirectory.isDirectory()) {
+      File selectedDirectory = selectedItem.getValue().getPath().toFile();
+      if (selectedItem.getValue().isDirectory()) {
         boolean validName = false;
         while (!validName) { // run this till user enters a valid name
           // create a TextInputDialog to prompt the user for the file name
@@ -359,47 +483,40 @@ public class Scene1Controller {
           // show the dialog and wait for the user to provide a file name
           Optional<String> result = dialog.showAndWait();
           if (result.isPresent()) {
-            String fileName = result.get();
-            // ensure the file name ends with .html - default type for application
-            if (!fileName.toLowerCase().endsWith(".html")) {
-              fileName += ".html";
-            }
-
-            File newFile = new File(selectedDirectory, fileName);
-            if (newFile.exists()) {
+            try {
+              // the store adds .html - default type for application - and refuses names outside the folder
+              Path newFile = noteStore.createNote(selectedDirectory.toPath(), result.get());
+              searchService.update(newFile, "");
+              catalogService.update(newFile, "");
+              // add the new file to the TreeView
+              TreeItem<NoteNode> newFileItem = new TreeItem<>(new NoteNode(newFile, false));
+              selectedItem.getChildren().add(newFileItem);
+              selectedItem.setExpanded(true);
+              // open the new file in the HTMLEditor
+              loadFileContent(newFile.toFile());
+              validName = true;
+            } catch (FileAlreadyExistsException e) {
               // display an error alert if the file already exists
               Alert alert = new Alert(AlertType.ERROR);
               alert.setTitle("File Creation Error");
               alert.setHeaderText(null);
               alert.setContentText("A file with the same name already exists. Please enter a different name.");
               alert.showAndWait();
-            } else {
-              try {
-                if (newFile.createNewFile()) {
-                  // add the new file to the TreeView
-                  TreeItem<String> newFileItem = new TreeItem<>(newFile.getName());
-                  selectedItem.getChildren().add(newFileItem);
-                  selectedItem.setExpanded(true);
-                  // open the new file in the HTMLEditor
-                  loadFileContent(newFile);
-                  validName = true;
-                } else {
-                  // display an error alert if the file could not be created
-                  Alert alert = new Alert(AlertType.ERROR);
-                  alert.setTitle("File Creation Error");
-                  alert.setHeaderText(null);
-                  alert.setContentText("The file could not be created.");
-                  alert.showAndWait();
-                }
-              } catch (IOException e) {
-                e.printStackTrace();
-                // display an error alert if an exception occurs
-                Alert alert = new Alert(AlertType.ERROR);
-                alert.setTitle("File Creation Error");
-                alert.setHeaderText(null);
-                alert.setContentText("An error occurred while creating the file.");
-                alert.showAndWait();
-              }
+            } catch (IllegalArgumentException e) {
+              // display an error alert if the name can't be a note of this folder
+              Alert alert = new Alert(AlertType.ERROR);
+              alert.setTitle("File Creation Error");
+              alert.setHeaderText(null);
+              alert.setContentText("The file name is not valid. Please enter a different name.");
+              alert.showAndWait();
+            } catch (IOException e) {
+              e.printStackTrace();
+              // display an error alert if an exception occurs
+              Alert alert = new Alert(AlertType.ERROR);
+              alert.setTitle("File Creation Error");
+              alert.setHeaderText(null);
+              alert.setContentText("An error occurred while creating the file.");
+              alert.showAndWait();
             }
           } else {
             // user cancelled the dialog
@@ -424,9 +541,23 @@ public class Scene1Controller {
     }
   }
 
+  // Keys which can change the note, navigation and plain shortcuts like copy don't
+  private static boolean modifiesContent(KeyEvent event) {
+    KeyCode code = event.getCode();
+    if (code.isModifierKey() || code.isNavigationKey() || code.isFunctionKey() || code == KeyCode.ESCAPE) {
+      return false;
+    }
+    if (event.isShortcutDown()) {
+      // paste, cut, undo, redo and the formatting shortcuts
+      return code == KeyCode.V || code == KeyCode.X || code == KeyCode.Z || code == KeyCode.Y
+          || code == KeyCode.B || code == KeyCode.I || code == KeyCode.U;
+    }
+    return true;
+  }
+
   // Use a key released event to update the word count from the HTMLEditor content
   public void handleClickEventInWebView() {
-    updateWordCount(htmlEditor.getHtmlText());
+    wordCountService.requestCount(); // counted off the FX thread, at most every WORD_COUNT_INTERVAL
   }
 
   // Handles toggle button to show/hide the TreeView.
@@ -448,51 +579,129 @@ public class Scene1Controller {
     });
   }
 
+  // Show the saved versions of the open note and put the one the user picks into the editor
+  public void showVersionHistory() {
+    if (activeTab == null || activeTab.isLarge()) {
+      Alert alert = new Alert(AlertType.INFORMATION);
+      alert.setTitle("Skrib History");
+      alert.setHeaderText(null);
+      alert.setContentText("Open a Skrib to see its earlier versions.");
+      alert.showAndWait();
+      return;
+    }
+    File note = currentFile;
+    Optional<String> restored = new VersionHistoryDialog(versionHistory, note.toPath()).showAndWait();
+    if (restored.isPresent() && note.equals(currentFile)) {
+      // the text being replaced becomes a version too, so a restore can be undone from the history
+      versionHistory.record(note.toPath(), htmlEditor.getHtmlText());
+      htmlEditor.setHtmlText(restored.get());
+      activeTab.getDirtyTracker().edited();
+      if (autosaveMenuItem.isSelected()) {
+        handleAutosaveEdit();
+      }
+      wordCountService.requestCount();
+    }
+  }
+
+  // Write the flight recording of the last minutes to a file the user picks, e.g. to attach it to a report
+  public void dumpRecording() {
+    if (!flightRecording.isRunning()) {
+      Alert alert = new Alert(AlertType.INFORMATION);
+      alert.setTitle("Flight Recording");
+      alert.setHeaderText(null);
+      alert.setContentText("No flight recording is running, it's turned off in the preferences or not supported by this Java.");
+      alert.showAndWait();
+      return;
+    }
+    FileChooser fileChooser = new FileChooser();
+    fileChooser.setTitle("Dump Flight Recording");
+    fileChooser.setInitialFileName("skribber-" + LocalDateTime.now().format(RECORDING_NAME_FORMAT) + ".jfr");
+    fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Flight Recordings", "*.jfr"));
+    File file = fileChooser.showSaveDialog(borderPane.getScene().getWindow());
+    if (file == null) {
+      return;
+    }
+    // dumping copies the recording's chunks, which can take a moment
+    Thread dumper = new Thread(() -> {
+      try {
+        flightRecording.dump(file.toPath());
+        Platform.runLater(() -> {
+          Alert alert = new Alert(AlertType.INFORMATION);
+          alert.setTitle("Flight Recording");
+          alert.setHeaderText(null);
+          alert.setContentText("The flight recording was written to " + file + ".");
+          alert.showAndWait();
+        });
+      } catch (IOException e) {
+        e.printStackTrace();
+        Platform.runLater(() -> {
+          Alert alert = new Alert(AlertType.ERROR);
+          alert.setTitle("Flight Recording");
+          alert.setHeaderText(null);
+          alert.setContentText("An error occurred while writing the flight recording.");
+          alert.showAndWait();
+        });
+      }
+    }, "skrib-recording-dump");
+    dumper.setDaemon(true);
+    dumper.start();
+  }
+
   // Function to close the currently opened file
   public void closeCurrentFile() {
-    String currentContent = htmlEditor.getHtmlText();
-    try {
-      String fileContent = new String(Files.readAllBytes(currentFile.toPath()));
-      if(!currentContent.equals(fileContent)) {
-        // prompt the user to save changes
-        Alert alert = new Alert(AlertType.CONFIRMATION);
-        alert.setTitle("Found unsaved changes");
-        alert.setHeaderText(null);
-        alert.setContentText("Do you want to save changes to: " + currentFile.getName() + "?");
-
-        ButtonType buttonTypeYes =  new ButtonType("Yes");
-        ButtonType buttonTypeNo =  new ButtonType("No");
-        ButtonType buttonTypeCancel =  new ButtonType("Cancel");
+    if (activeTab != null && confirmUnsavedChanges(activeTab)) {
+      closeTab(activeTab);
+    }
+  }
 
-        alert.getButtonTypes().setAll(buttonTypeYes, buttonTypeNo, buttonTypeCancel);
+  // Asks whether to save unsaved changes of every open note, false if the user cancels
+  public boolean confirmUnsavedChanges() {
+    for (NoteTab tab : getOpenTabs()) {
+      if (!confirmUnsavedChanges(tab)) {
+        return false;
+      }
+    }
+    return true;
+  }
 
-        Optional<ButtonType> result = alert.showAndWait();
-        if(result.isPresent()) {
-          if(result.get() == buttonTypeYes) {
-            saveFileContent();
-            clearEditor();
-          } else if(result.get() == buttonTypeNo) {
-            clearEditor();
-          } else {
-            // user cancels the operation, Do nothing
-            return;
-          }
-        }
-      } else {
-        // no changes made to the file, clear the editor
-        clearEditor();
+  // Asks whether to save unsaved changes of a note, false if the user cancels.
+  // The check hashes the editor content against what the file last held, so the file isn't read again.
+  private boolean confirmUnsavedChanges(NoteTab tab) {
+    if (!tab.hasUnsavedChanges()) {
+      return true;
+    }
+    editorTabs.getSelectionModel().select(tab.getTab()); // the note the user is asked about, and the one saved
+    // prompt the user to save changes
+    Alert alert = new Alert(AlertType.CONFIRMATION);
+    alert.setTitle("Found unsaved changes");
+    alert.setHeaderText(null);
+    alert.setContentText("Do you want to save changes to: " + tab.getPath().getFileName() + "?");
+
+    ButtonType buttonTypeYes =  new ButtonType("Yes");
+    ButtonType buttonTypeNo =  new ButtonType("No");
+    ButtonType buttonTypeCancel =  new ButtonType("Cancel");
+
+    alert.getButtonTypes().setAll(buttonTypeYes, buttonTypeNo, buttonTypeCancel);
+
+    Optional<ButtonType> result = alert.showAndWait();
+    if(result.isPresent()) {
+      if(result.get() == buttonTypeYes) {
+        saveFileContent();
+        return true;
+      } else if(result.get() == buttonTypeNo) {
+        return true;
       }
-    } catch(IOException e) {
-      e.printStackTrace();
     }
+    // user cancels the operation
+    return false;
   }
 
   // Function to delete the currently selected file
   public void deleteSelectedFile() {
-    TreeItem<String> selectedItem = treeView.getSelectionModel().getSelectedItem();
+    TreeItem<NoteNode> selectedItem = treeView.getSelectionModel().getSelectedItem();
     if(selectedItem != null) {
-      File selectedFile = new File(storageDirectory, getFilePath(selectedItem));
-      if(selectedFile.isFile()) {
+      File selectedFile = selectedItem.getValue().getPath().toFile();
+      if(!selectedItem.getValue().isDirectory()) {
         // confirm deletion with the user
         Alert alert = new Alert(AlertType.CONFIRMATION);
         alert.setTitle("Delete selected Skrib");
@@ -506,19 +715,28 @@ public class Scene1Controller {
 
         Optional<ButtonType> result = alert.showAndWait();
         if(result.isPresent() && result.get() == buttonTypeYes) {
-          if(selectedFile.delete()) {
+          NoteTab openTab = findTab(selectedFile.toPath());
+          if(openTab != null && openTab == activeTab) {
+            autosaveEngine.discard(); // a pending autosave would recreate the deleted file
+          }
+          try {
+            noteStore.delete(selectedFile.toPath());
+            searchService.remove(selectedFile.toPath());
+            catalogService.remove(selectedFile.toPath());
+            noteLoader.getCache().remove(selectedFile.toPath());
             // remove the file from the Treeview
-            TreeItem<String> parent = selectedItem.getParent();
+            TreeItem<NoteNode> parent = selectedItem.getParent();
             if(parent != null) {
               parent.getChildren().remove(selectedItem);
             } else {
               treeView.setRoot(null);
             }
 
-            // clear the editor if the deleted file is the currently opened file
-            if(selectedFile.equals(currentFile)) {
-              clearEditor();
+            // close the tab of the deleted file
+            if(openTab != null) {
+              closeTab(openTab);
             }
+            editorView.forget(selectedFile.toPath());
 
             // show confirmation alert
             Alert confirmationAlert = new Alert(AlertType.INFORMATION);
@@ -526,7 +744,8 @@ public class Scene1Controller {
             confirmationAlert.setHeaderText(null);
             confirmationAlert.setContentText("The file has been successfully deleted.");
             confirmationAlert.showAndWait();
-          } else {
+          } catch (IOException e) {
+            e.printStackTrace();
             // show error alert if the file could not be deleted
             Alert errorAlert = new Alert(AlertType.ERROR);
             errorAlert.setTitle("Delete Error");
@@ -555,15 +774,17 @@ public class Scene1Controller {
 
   // Function to delete the currently selected directory
   public void deleteSelectedDirectory() {
-    TreeItem<String> selectedItem = treeView.getSelectionModel().getSelectedItem();
+    TreeItem<NoteNode> selectedItem = treeView.getSelectionModel().getSelectedItem();
     if (selectedItem != null) {
-      File selectedDirectory;
-      if(selectedItem.getParent() == null) {
-        selectedDirectory = storageDirectory;
-      } else {
-        selectedDirectory = new File(storageDirectory, getFilePath(selectedItem));
-      }
-      if (selectedDirectory.isDirectory()) {
+      File selectedDirectory = selectedItem.getValue().getPath().toFile();
+      if (selectedItem.getParent() == null) {
+        // the vault itself can't go into its own trash, and its notes must not be closed for nothing
+        Alert errorAlert = new Alert(AlertType.ERROR);
+        errorAlert.setTitle("Invalid Selection");
+        errorAlert.setHeaderText(null);
+        errorAlert.setContentText("The vault itself can't be deleted, please select a directory inside it.");
+        errorAlert.showAndWait();
+      } else if (selectedItem.getValue().isDirectory()) {
         // confirm deletion with the user
         Alert alert = new Alert(AlertType.CONFIRMATION);
         alert.setTitle("Delete Directory");
@@ -578,19 +799,20 @@ public class Scene1Controller {
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == buttonTypeYes) {
           try {
-            deleteDirectoryRecursively(selectedDirectory);
-            // remove the directory from the TreeView
-            TreeItem<String> parent = selectedItem.getParent();
-            if (parent != null) {
-              parent.getChildren().remove(selectedItem);
-            } else {
-              treeView.setRoot(null);
-            }
-
-            // clear the editor if the deleted directory contained the currently opened file
-            if (currentFile != null && currentFile.getParentFile().equals(selectedDirectory)) {
-              clearEditor();
+            // notes in nested folders are inside too, not just the ones directly in it
+            for (NoteTab tab : getOpenTabs()) {
+              if (tab.getPath().startsWith(selectedDirectory.toPath())) {
+                closeTab(tab); // drops a pending autosave, which would recreate the folder, and releases large notes
+              }
             }
+            // renamed into the trash right away, the files are deleted in the background
+            trashService.delete(noteStore, selectedDirectory.toPath(),
+                vaultCatalog.countUnder(selectedDirectory.toPath()));
+            searchService.removeTree(selectedDirectory.toPath());
+            catalogService.remove(selectedDirectory.toPath());
+            noteLoader.getCache().removeUnder(selectedDirectory.toPath());
+            // remove the directory from the TreeView
+            selectedItem.getParent().getChildren().remove(selectedItem);
 
             // show confirmation alert
             Alert confirmationAlert = new Alert(AlertType.INFORMATION);
@@ -599,6 +821,7 @@ public class Scene1Controller {
             confirmationAlert.setContentText("The directory has been successfully deleted.");
             confirmationAlert.showAndWait();
           } catch (IOException e) {
+            e.printStackTrace();
             // show error alert if the directory could not be deleted
             Alert errorAlert = new Alert(AlertType.ERROR);
             errorAlert.setTitle("Delete Error");
@@ -627,16 +850,11 @@ public class Scene1Controller {
 
   // Function to create a new directory in the selected folder
   public void createNewDirectory() {
-    TreeItem<String> selectedItem = treeView.getSelectionModel().getSelectedItem();
+    TreeItem<NoteNode> selectedItem = treeView.getSelectionModel().getSelectedItem();
     if (selectedItem != null) {
-      File selectedDirectory;
-      if(selectedItem.getParent() == null) {
-        selectedDirectory = storageDirectory;
-      } else {
-        selectedDirectory = new File(storageDirectory, getFilePath(selectedItem));
-      }
-      
-      if (selectedDirectory.isDirectory()) {
+      File selectedDirectory = selectedItem.getValue().getPath().toFile();
+
+      if (selectedItem.getValue().isDirectory()) {
         boolean validName = false;
         while (!validName) { // run this till user enters a valid name or closes the dialog
           // create a TextInputDialog to prompt the user for the directory name
@@ -648,37 +866,42 @@ public class Scene1Controller {
           // show the dialog and wait for the user to provide a directory name
           Optional<String> result = dialog.showAndWait();
           if (result.isPresent()) {
-            String directoryName = result.get();
-            File newDirectory = new File(selectedDirectory, directoryName);
-            if (newDirectory.exists()) {
+            try {
+              Path newDirectory = noteStore.createDirectory(selectedDirectory.toPath(), result.get());
+              // add the new directory to the TreeView
+              TreeItem<NoteNode> newDirectoryItem = new LazyDirectoryTreeItem(newDirectory, directoryScanner, treeIndex);
+              selectedItem.getChildren().add(newDirectoryItem);
+              selectedItem.setExpanded(true);
+
+              // show confirmation alert
+              Alert confirmationAlert = new Alert(AlertType.INFORMATION);
+              confirmationAlert.setTitle("Directory Created");
+              confirmationAlert.setHeaderText(null);
+              confirmationAlert.setContentText("The directory has been successfully created.");
+              confirmationAlert.showAndWait();
+              validName = true; // exit the loop
+            } catch (FileAlreadyExistsException e) {
               // display an error alert if the directory already exists
               Alert alert = new Alert(AlertType.ERROR);
               alert.setTitle("Directory Creation Error");
               alert.setHeaderText(null);
               alert.setContentText("A directory with the same name already exists. Please enter a different name.");
               alert.showAndWait();
-            } else {
-                if (newDirectory.mkdir()) {
-                  // add the new directory to the TreeView
-                  TreeItem<String> newDirectoryItem = new TreeItem<>(newDirectory.getName());
-                  selectedItem.getChildren().add(newDirectoryItem);
-                  selectedItem.setExpanded(true);
-
-                  // show confirmation alert
-                  Alert confirmationAlert = new Alert(AlertType.INFORMATION);
-                  confirmationAlert.setTitle("Directory Created");
-                  confirmationAlert.setHeaderText(null);
-                  confirmationAlert.setContentText("The directory has been successfully created.");
-                  confirmationAlert.showAndWait();
-                  validName = true; // exit the loop
-                } else {
-                  // display an error alert if the directory could not be created
-                  Alert alert = new Alert(AlertType.ERROR);
-                  alert.setTitle("Directory Creation Error");
-                  alert.setHeaderText(null);
-                  alert.setContentText("The directory could not be created.");
-                  alert.showAndWait();
-                }
+            } catch (IllegalArgumentException e) {
+              // display an error alert if the name can't be a folder of this one
+              Alert alert = new Alert(AlertType.ERROR);
+              alert.setTitle("Directory Creation Error");
+              alert.setHeaderText(null);
+              alert.setContentText("The directory name is not valid. Please enter a different name.");
+              alert.showAndWait();
+            } catch (IOException e) {
+              e.printStackTrace();
+              // display an error alert if the directory could not be created
+              Alert alert = new Alert(AlertType.ERROR);
+              alert.setTitle("Directory Creation Error");
+              alert.setHeaderText(null);
+              alert.setContentText("The directory could not be created.");
+              alert.showAndWait();
             }
           } else {
             // user cancelled the dialog
@@ -703,6 +926,93 @@ public class Scene1Controller {
     }
   }
 
+  // Export the open vault into a single zip the user picks, e.g. to back it up or move it to another machine
+  public void exportVault() {
+    if (noteStore == null) {
+      showArchiveAlert(AlertType.ERROR, "Export Vault", "Please open a vault to export.");
+      return;
+    }
+    if (archiveService.isRunning()) {
+      showArchiveAlert(AlertType.ERROR, "Export Vault", "Please wait until the running export or import is done.");
+      return;
+    }
+    FileChooser fileChooser = new FileChooser();
+    fileChooser.setTitle("Export Vault");
+    fileChooser.setInitialFileName(
+        storageDirectory.getName() + "-" + LocalDateTime.now().format(ARCHIVE_NAME_FORMAT) + ".zip");
+    fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Zip Archives", "*.zip"));
+    File file = fileChooser.showSaveDialog(borderPane.getScene().getWindow());
+    if (file == null) {
+      return;
+    }
+    archiveService.export(noteStore, file.toPath()).whenComplete((result, e) -> Platform.runLater(() -> {
+      if (e == null) {
+        showArchiveAlert(AlertType.INFORMATION, "Export Vault",
+            String.format("%,d files and folders were exported to %s.", result.entries(), file));
+      } else if (unwrap(e) instanceof CancellationException) {
+        showArchiveAlert(AlertType.INFORMATION, "Export Vault", "The export was cancelled.");
+      } else {
+        e.printStackTrace();
+        showArchiveAlert(AlertType.ERROR, "Export Vault", "An error occurred while exporting the vault.");
+      }
+    }));
+  }
+
+  // Import an exported vault into a folder. Files are unpacked straight into place and show up in the tree as they
+  // land, a folder outside the open vault is opened as the vault first.
+  public void importVault() {
+    if (archiveService.isRunning()) {
+      showArchiveAlert(AlertType.ERROR, "Import Vault", "Please wait until the running export or import is done.");
+      return;
+    }
+    FileChooser fileChooser = new FileChooser();
+    fileChooser.setTitle("Import Vault");
+    fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Zip Archives", "*.zip"));
+    File archive = fileChooser.showOpenDialog(borderPane.getScene().getWindow());
+    if (archive == null) {
+      return;
+    }
+
+    DirectoryChooser directoryChooser = new DirectoryChooser();
+    directoryChooser.setTitle("Import Into");
+    TreeItem<NoteNode> selectedItem = treeView.getSelectionModel().getSelectedItem();
+    if (selectedItem != null && selectedItem.getValue().isDirectory()) {
+      directoryChooser.setInitialDirectory(selectedItem.getValue().getPath().toFile());
+    } else if (storageDirectory != null) {
+      directoryChooser.setInitialDirectory(storageDirectory);
+    } else {
+      directoryChooser.setInitialDirectory(new File(System.getProperty("user.home")));
+    }
+    File target = directoryChooser.showDialog(borderPane.getScene().getWindow());
+    if (target == null) {
+      return;
+    }
+    if (noteStore == null || !noteStore.contains(target.toPath())) {
+      storeDirectory(target);
+      openVault(target, VaultCatalog.open(target.toPath().toAbsolutePath()));
+    }
+
+    Path targetPath = target.toPath();
+    archiveService.importArchive(archive.toPath(), targetPath, this::addImportedEntries)
+        .whenComplete((result, e) -> Platform.runLater(() -> {
+          // the watcher may have missed files of a large import, the index and catalog check the whole folder
+          searchService.refresh(targetPath);
+          catalogService.refresh(targetPath);
+          if (e == null) {
+            showArchiveAlert(AlertType.INFORMATION, "Import Vault", result.skipped() > 0
+                ? String.format("%,d files were imported, %,d that existed already were kept.", result.entries(),
+                    result.skipped())
+                : String.format("%,d files were imported.", result.entries()));
+          } else if (unwrap(e) instanceof CancellationException) {
+            showArchiveAlert(AlertType.INFORMATION, "Import Vault",
+                "The import was cancelled, the files imported until then were kept.");
+          } else {
+            e.printStackTrace();
+            showArchiveAlert(AlertType.ERROR, "Import Vault", "An error occurred while importing the archive.");
+          }
+        }));
+  }
+
 
   //        ----------------------------- HELPER FUNCTIONS -----------------------------
 
@@ -713,14 +1023,24 @@ public class Scene1Controller {
     // check if the file has a supported extension
     String fileName = file.getName().toLowerCase();
     if (fileName.endsWith(".html") || fileName.endsWith(".htm") || fileName.endsWith(".txt")) {
-      try {
-          String content = new String(Files.readAllBytes(file.toPath()));
-          htmlEditor.setHtmlText(content);
-          htmlEditor.setVisible(true);
-          currentFile = file; // Store the reference to the currently opened file
-      } catch (IOException e) {
-          e.printStackTrace();
+      Path path = file.toPath();
+      NoteTab openTab = findTab(path);
+      Metrics.Timer timer = Metrics.start(Metrics.Operation.NOTE_LOAD); // until the note is shown
+      if (openTab != null) {
+        pendingNote = null;
+        editorTabs.getSelectionModel().select(openTab.getTab()); // shown again without parsing it while it's live
+        timer.stop("open tab");
+      } else {
+        // the loader checks the size on its thread, large notes come back unread and open in the large note view
+        pendingNote = path;
+        CompletableFuture<String> content = noteLoader.load(path);
+        if (content.isDone()) {
+          showLoadedNote(file, content, timer, "cached"); // cached, shown without waiting for the next pulse
+        } else {
+          content.whenComplete((_, _) -> Platform.runLater(() -> showLoadedNote(file, content, timer, "read")));
+        }
       }
+      prefetchNeighbors(path);
     } else {
       // Display an alert to the user for unsupported file type
       Alert alert = new Alert(AlertType.ERROR);
@@ -730,54 +1050,318 @@ public class Scene1Controller {
       
       // Set the icon for the alert window
       Stage stage = (Stage) alert.getDialogPane().getScene().getWindow();
-      stage.getIcons().add(new Image("images/icon.png"));
+      stage.getIcons().add(ResourceCache.icon());
 
       alert.showAndWait();
     }
   }
 
-  // Method to get the file path from the TreeItem
-  private String getFilePath(TreeItem<String> item) {
-    StringBuilder path = new StringBuilder(item.getValue());
-    TreeItem<String> parent = item.getParent();
-    // loop stops before reaching the root of the tree, which typically doesn't contribute to the path
-    while (parent != null && parent.getParent() != null) {
-        path.insert(0, parent.getValue() + File.separator);
-        parent = parent.getParent();
+  // Open a note in a tab once its content has been read, unless another note was picked in the meantime
+  private void showLoadedNote(File file, CompletableFuture<String> content, Metrics.Timer timer, String source) {
+    if (!file.toPath().equals(pendingNote)) {
+      return; // not recorded, the note was never shown
+    }
+    pendingNote = null;
+    try {
+      String html = content.join();
+      if (html == null) {
+        showLargeNote(file);
+        timer.stop("large note");
+        return;
+      }
+      openTab(new NoteTab(file.toPath(), html));
+      timer.stop(String.format("%s, %,d characters", source, html.length()));
+      versionHistory.opened(file.toPath(), html); // kept as the first version once the note is saved
+    } catch (CompletionException e) {
+      e.getCause().printStackTrace();
     }
-    return path.toString();
   }
 
-  // turn on autosave feature
-  private void enableAutosave() {
-    htmlEditor.setOnKeyReleased(_ -> {
-      if (currentFile != null) {
-        try {
-          String content = htmlEditor.getHtmlText();
-          Files.write(currentFile.toPath(), content.getBytes());
-        } catch (IOException e) {
-          e.printStackTrace();
-          // display an error alert to the user
-          Alert alert = new Alert(AlertType.ERROR);
-          alert.setTitle("Save Error");
-          alert.setHeaderText(null);
-          alert.setContentText("An error occurred with auto-saving the file.");
-          alert.showAndWait();
-        }
+  // Open a note above the large note threshold in the read only view, it's mapped instead of read into memory.
+  // There is a single large note view, so a large note replaces the one that was open.
+  private void showLargeNote(File file) {
+    for (NoteTab tab : getOpenTabs()) {
+      if (tab.isLarge()) {
+        closeTab(tab);
+      }
+    }
+    largeNoteLineCount = 0;
+    largeNoteView.open(file.toPath());
+    openTab(new NoteTab(file.toPath(), largeNoteView));
+  }
+
+  // Add a tab next to the shown one and show it
+  private void openTab(NoteTab tab) {
+    tab.getTab().setOnCloseRequest(event -> {
+      if (confirmUnsavedChanges(tab)) {
+        leaveTab(tab);
       } else {
-        // display an error alert to the user if no file is currently opened
-        Alert alert = new Alert(AlertType.ERROR);
-        alert.setTitle("No File Opened");
-        alert.setHeaderText(null);
-        alert.setContentText("No file is currently opened to auto-save.");
-        alert.showAndWait();
+        event.consume();
+      }
+    });
+    tab.getTab().setOnClosed(_ -> releaseTab(tab));
+    int index = activeTab == null ? -1 : editorTabs.getTabs().indexOf(activeTab.getTab());
+    editorTabs.getTabs().add(index + 1, tab.getTab());
+    editorTabs.getSelectionModel().select(tab.getTab());
+  }
+
+  // Show the note of the selected tab, its editor is taken from the pool when it was handed to another tab
+  private void showTab(NoteTab tab) {
+    autosaveEngine.flush(); // pending edits belong to the note that is left
+    rememberEditorView();
+    activeTab = tab;
+    currentFile = tab == null ? null : tab.getPath().toFile(); // Store the reference to the currently opened file
+    if (tab == null || tab.isLarge()) {
+      htmlEditor = null;
+      editorView.setEditor(null);
+      wordCountLabel.setText(tab == null ? "" : lineCountText(largeNoteLineCount));
+    } else {
+      boolean rebuilt = editorPool.show(tab);
+      htmlEditor = tab.getEditor();
+      editorView.setEditor(htmlEditor);
+      if (rebuilt) {
+        editorView.restore(tab.getPath());
+      }
+      wordCountService.requestCount();
+    }
+    // the tree follows the tabs
+    TreeItem<NoteNode> item = tab == null ? null : treeIndex.get(tab.getPath());
+    if (item != null && item != treeView.getSelectionModel().getSelectedItem()) {
+      syncingSelection = true;
+      treeView.getSelectionModel().select(item);
+      syncingSelection = false;
+    }
+  }
+
+  // Close a tab without asking, callers have already saved or chosen to drop its changes
+  private void closeTab(NoteTab tab) {
+    leaveTab(tab);
+    editorTabs.getTabs().remove(tab.getTab());
+    releaseTab(tab);
+  }
+
+  // A shown tab that is about to close is left first, so showing the next tab neither saves nor remembers it
+  private void leaveTab(NoteTab tab) {
+    if (tab == activeTab) {
+      autosaveEngine.discard();
+      rememberEditorView();
+      activeTab = null;
+      htmlEditor = null;
+    }
+  }
+
+  // Give the editor of a closed tab back to the pool, or let go of the large note
+  private void releaseTab(NoteTab tab) {
+    if (tab.isLarge()) {
+      tab.release();
+      largeNoteView.close();
+    } else {
+      editorPool.release(tab);
+    }
+  }
+
+  private NoteTab findTab(Path path) {
+    for (NoteTab tab : getOpenTabs()) {
+      if (tab.getPath().equals(path)) {
+        return tab;
+      }
+    }
+    return null;
+  }
+
+  private List<NoteTab> getOpenTabs() {
+    List<NoteTab> tabs = new ArrayList<>();
+    for (Tab tab : editorTabs.getTabs()) {
+      tabs.add((NoteTab) tab.getUserData());
+    }
+    return tabs;
+  }
+
+  // Keep the zoom and scroll position of the shown note before another one is shown
+  private void rememberEditorView() {
+    if (activeTab != null && !activeTab.isLarge()) {
+      editorView.remember(activeTab.getPath());
+    }
+  }
+
+  // Editors are created by the pool as tabs need them, set up the way the FXML used to set up the single editor
+  private HTMLEditor createEditor() {
+    HTMLEditor editor = new HTMLEditor();
+    editor.getStyleClass().add("HTMLEditor");
+    editor.setOnKeyReleased(_ -> handleClickEventInWebView());
+    editor.setOnMouseClicked(_ -> handleClickEventInWebView());
+    // track edits in memory so unsaved changes are known without reading the file again, only the shown tab's
+    // editor gets any input
+    editor.addEventFilter(KeyEvent.KEY_PRESSED, event -> {
+      if (modifiesContent(event)) {
+        activeTab.getDirtyTracker().edited();
+      }
+    });
+    editor.addEventFilter(MouseEvent.MOUSE_CLICKED, event -> {
+      if (!(event.getTarget() instanceof WebView)) {
+        activeTab.getDirtyTracker().edited(); // toolbar formatting, clicks in the document itself only move the caret
       }
     });
+    if (autosaveMenuItem.isSelected()) {
+      editor.addEventHandler(KeyEvent.KEY_RELEASED, autosaveHandler);
+    }
+    return editor;
+  }
+
+  // Memory the editors of the tabs may use in megabytes, configurable through the user's preferences. Tabs over it
+  // keep a snapshot of their note instead of a live editor.
+  private long getEditorMemoryBudget() {
+    Preferences prefs = Preferences.userNodeForPackage(Scene1Controller.class);
+    return prefs.getLong(PREF_KEY_EDITOR_MEMORY, DEFAULT_EDITOR_MEMORY);
+  }
+
+  // Whether a flight recording of the last minutes is kept, configurable through the user's preferences
+  private boolean getFlightRecordingEnabled() {
+    Preferences prefs = Preferences.userNodeForPackage(Scene1Controller.class);
+    return prefs.getBoolean(PREF_KEY_FLIGHT_RECORDING, true);
+  }
+
+  // Read the notes next to the opened one ahead of time, next/prev note gestures then switch instantly
+  private void prefetchNeighbors(Path path) {
+    TreeItem<NoteNode> item = treeIndex.get(path);
+    if (item == null) {
+      return;
+    }
+    TreeItem<NoteNode> nextItem = getNextItem(item);
+    if (nextItem != null && VaultFiles.isNote(nextItem.getValue().getPath())) {
+      noteLoader.prefetch(nextItem.getValue().getPath());
+    }
+    TreeItem<NoteNode> prevItem = getPrevItem(item);
+    if (prevItem != null && VaultFiles.isNote(prevItem.getValue().getPath())) {
+      noteLoader.prefetch(prevItem.getValue().getPath());
+    }
+  }
+
+  // Size in bytes above which notes open in the read only large note view, configurable through the user's preferences
+  private long getLargeNoteThreshold() {
+    Preferences prefs = Preferences.userNodeForPackage(Scene1Controller.class);
+    return prefs.getLong(PREF_KEY_LARGE_NOTE_THRESHOLD, DEFAULT_LARGE_NOTE_THRESHOLD) * 1024;
+  }
+
+  private void showLargeNoteError() {
+    // display an error alert to the user
+    Alert alert = new Alert(AlertType.ERROR);
+    alert.setTitle("Open Error");
+    alert.setHeaderText(null);
+    alert.setContentText("An error occurred while opening the large Skrib.");
+    alert.showAndWait();
+  }
+
+  // Confidence below which predictions are ignored, configurable through the user's preferences
+  private float getGestureMinConfidence() {
+    Preferences prefs = Preferences.userNodeForPackage(Scene1Controller.class);
+    return prefs.getFloat(PREF_KEY_GESTURE_MIN_CONFIDENCE, DEFAULT_GESTURE_MIN_CONFIDENCE);
+  }
+
+  // Consecutive frames that have to agree before a gesture acts, configurable through the user's preferences
+  private int getGestureAgreeingFrames() {
+    Preferences prefs = Preferences.userNodeForPackage(Scene1Controller.class);
+    return prefs.getInt(PREF_KEY_GESTURE_AGREEING_FRAMES, DEFAULT_GESTURE_AGREEING_FRAMES);
+  }
+
+  // Deflate level of exported vaults from 1 (fastest) to 9 (smallest), configurable through the user's preferences
+  private int getArchiveCompressionLevel() {
+    Preferences prefs = Preferences.userNodeForPackage(Scene1Controller.class);
+    int level = prefs.getInt(PREF_KEY_ARCHIVE_COMPRESSION, DEFAULT_ARCHIVE_COMPRESSION);
+    return level >= 1 && level <= 9 ? level : DEFAULT_ARCHIVE_COMPRESSION;
+  }
+
+  // Python with OpenCV and MediaPipe installed, configurable through the user's preferences
+  private String getGesturePython() {
+    Preferences prefs = Preferences.userNodeForPackage(Scene1Controller.class);
+    return prefs.get(PREF_KEY_GESTURE_PYTHON, DEFAULT_GESTURE_PYTHON);
+  }
+
+  // Whether the gesture streamer starts paused with the app, configurable through the user's preferences
+  private boolean getGesturePrewarm() {
+    Preferences prefs = Preferences.userNodeForPackage(Scene1Controller.class);
+    return prefs.getBoolean(PREF_KEY_GESTURE_PREWARM, false);
+  }
+
+  // Memory cap of the note content cache in megabytes, configurable through the user's preferences
+  private long getNoteCacheSize() {
+    Preferences prefs = Preferences.userNodeForPackage(Scene1Controller.class);
+    return prefs.getLong(PREF_KEY_NOTE_CACHE_SIZE, DEFAULT_NOTE_CACHE_SIZE);
+  }
+
+  // turn on autosave feature - added as a handler so the word count on key release keeps working
+  private void enableAutosave() {
+    for (HTMLEditor editor : editorPool.getEditors()) {
+      editor.addEventHandler(KeyEvent.KEY_RELEASED, autosaveHandler);
+    }
   }
 
-  // turn off autosave feature
+  // turn off autosave feature, edits still waiting for their quiet period are saved
   private void disableAutosave() {
-    htmlEditor.setOnKeyReleased(null);
+    for (HTMLEditor editor : editorPool.getEditors()) {
+      editor.removeEventHandler(KeyEvent.KEY_RELEASED, autosaveHandler);
+    }
+    autosaveEngine.flush();
+  }
+
+  // edits are coalesced by the autosave engine and written once typing pauses
+  private void handleAutosaveEdit() {
+    if (currentFile != null) {
+      autosaveEngine.contentChanged(currentFile);
+    } else {
+      // display an error alert to the user if no file is currently opened
+      Alert alert = new Alert(AlertType.ERROR);
+      alert.setTitle("No File Opened");
+      alert.setHeaderText(null);
+      alert.setContentText("No file is currently opened to auto-save.");
+      alert.showAndWait();
+    }
+  }
+
+  private void showAutosaveError() {
+    // display an error alert to the user
+    Alert alert = new Alert(AlertType.ERROR);
+    alert.setTitle("Save Error");
+    alert.setHeaderText(null);
+    alert.setContentText("An error occurred with auto-saving the file.");
+    alert.showAndWait();
+  }
+
+  // Pause in typing after which autosave writes the note, configurable through the user's preferences
+  private long getAutosaveQuietPeriod() {
+    Preferences prefs = Preferences.userNodeForPackage(Scene1Controller.class);
+    return prefs.getLong(PREF_KEY_AUTOSAVE_QUIET_PERIOD, DEFAULT_AUTOSAVE_QUIET_PERIOD);
+  }
+
+  // Durability policy used by autosave, configurable through the user's preferences
+  private AtomicNoteWriter.Durability getAutosaveDurability() {
+    Preferences prefs = Preferences.userNodeForPackage(Scene1Controller.class);
+    String durability = prefs.get(PREF_KEY_AUTOSAVE_DURABILITY, AtomicNoteWriter.Durability.DATA.name());
+    try {
+      return AtomicNoteWriter.Durability.valueOf(durability);
+    } catch (IllegalArgumentException e) {
+      return AtomicNoteWriter.Durability.DATA;
+    }
+  }
+
+  // Called when the application exits so pending autosaves reach the disk
+  public void shutdown() {
+    gestureEngine.shutdown();
+    if (vaultWatcher != null) {
+      vaultWatcher.stop();
+    }
+    autosaveEngine.shutdown();
+    searchService.shutdown();
+    catalogService.shutdown();
+    trashService.shutdown();
+    archiveService.shutdown();
+    versionHistory.shutdown();
+    noteLoader.shutdown();
+    largeNoteView.shutdown();
+    wordCountService.shutdown();
+    directoryScanner.shutdown();
+    fxStallProbe.shutdown();
+    flightRecording.stop();
   }
 
   //                                       Directory Methods
@@ -806,20 +1390,6 @@ public class Scene1Controller {
     return directoryChooser.showDialog(null);
   }
 
-  // Method to delete a directory and its contents recursively
-  private void deleteDirectoryRecursively(File directory) throws IOException {
-    if (directory.isDirectory()) {
-      File[] files = directory.listFiles();
-      if (files != null) {
-        for (File file : files) {
-          deleteDirectoryRecursively(file);
-        }
-      }
-    }
-    if (!directory.delete()) {
-      throw new IOException("Failed to delete " + directory);
-    }
-  }
 
 
   //                                    Stored Directory Methods                                       
@@ -853,38 +1423,83 @@ public class Scene1Controller {
 
   //                                       TreeView Methods
 
-  // Populating the TreeView control
-  private void populateTreeView(TreeItem<String> parent, File directory) {
-    File[] files = directory.listFiles();
-    if (files != null) {
-      for (File file : files) {
-        TreeItem<String> treeItem = new TreeItem<>(file.getName());
-        parent.getChildren().add(treeItem);
-        if (file.isDirectory()) {
-            populateTreeView(treeItem, file);
+  // Populating the TreeView control - each directory lists its children the first time it's expanded
+  private void populateTreeView(File directory, VaultCatalog catalog) {
+    Metrics.Timer timer = Metrics.start(Metrics.Operation.TREE_POPULATE);
+    // the catalog of the last launch lists directories right away, the scanner then reconciles them with the disk
+    vaultCatalog = catalogService.open(catalog);
+    directoryScanner.setStore(noteStore);
+    directoryScanner.setCatalog(vaultCatalog);
+    trashService.purgeLeftovers(noteStore); // folders whose purge was cancelled or cut short
+    treeIndex.clear();
+    LazyDirectoryTreeItem rootItem = new LazyDirectoryTreeItem(directory.toPath(), directoryScanner, treeIndex);
+    treeIndex.add(rootItem);
+    treeView.setRoot(rootItem);
+    timer.stop(String.format("%,d catalogued", vaultCatalog.size()));
+  }
+
+  // Start watching a vault, replacing the watcher of the previous one
+  private void watchVault(File directory) {
+    if (vaultWatcher != null) {
+      vaultWatcher.stop();
+    }
+    try {
+      vaultWatcher = new VaultWatcher(directory.toPath(), this::applyVaultChanges);
+      vaultWatcher.start();
+    } catch (IOException e) {
+      e.printStackTrace(); // the vault still works, external changes just need a reopen
+      vaultWatcher = null;
+    }
+  }
+
+  // Apply external changes to the listed part of the tree, directories that were never expanded list them later
+  private void applyVaultChanges(List<VaultWatcher.Change> changes, List<Path> rescans) {
+    for (VaultWatcher.Change change : changes) {
+      TreeItem<NoteNode> item = treeIndex.get(change.path());
+      if (change.exists()) {
+        if (item == null && treeIndex.get(change.path().getParent()) instanceof LazyDirectoryTreeItem parent) {
+          parent.addChild(change.path(), change.directory());
+        }
+      } else if (item != null && item.getParent() != null) {
+        item.getParent().getChildren().remove(item);
+      }
+      NoteTab changedTab = findTab(change.path());
+      if (changedTab != null) {
+        // the events of Skribber's own saves are ignored, after other changes the next autosave always writes
+        changedTab.getDirtyTracker().fileChanged(change.modified(), change.size());
+      }
+      if (change.exists()) {
+        noteLoader.getCache().removeIfStale(change.path(), change.modified(), change.size());
+      } else {
+        noteLoader.getCache().remove(change.path());
+        noteLoader.getCache().removeUnder(change.path());
+      }
+      searchService.refresh(change.path());
+      catalogService.refresh(change.path());
+      if (change.path().equals(largeNoteView.getPath())) {
+        // the mapping of a changed file can't be trusted, show it again or close it when it's gone
+        if (change.exists()) {
+          largeNoteView.open(change.path());
+        } else if (changedTab != null) {
+          closeTab(changedTab);
         }
       }
     }
+
+    for (Path directory : rescans) {
+      if (treeIndex.get(directory) instanceof LazyDirectoryTreeItem directoryItem) {
+        directoryItem.rescan();
+      }
+      noteLoader.getCache().removeUnder(directory);
+      searchService.refresh(directory);
+      catalogService.refresh(directory);
+    }
   }
 
   //                                        Utility Methods
 
-  // Converts html to normal text and counts the words
-  private void updateWordCount(String htmlText) {
-    String text = htmlEditor.getHtmlText(); // extracts text from htmlEditor
-
-    text = text.replaceAll("(?i)<br\\s*/?>", "\n"); // replace linebreaks 
-    text = text.replaceAll("(?i)</p>", "\n");
-
-    // remove all remaining HTML tags.
-    String plainText = text.replaceAll("<[^>]+>", "");
-
-    // handle text that is split across multiple lines by space, newline tab etc
-    String[] words = plainText.trim().split("\\s+");
-
-    // calculates number of words
-    int wordCount = plainText.trim().isEmpty() ? 0 : words.length;
-
+  // Shows the word count computed by the word count service
+  private void updateWordCount(int wordCount) {
     // update the word count label
     if (wordCountLabel != null) {
         if(wordCount > 1) 
@@ -898,11 +1513,110 @@ public class Scene1Controller {
     }
   }
   
-  // Method to clear the HTML editor and reset currentFile
-  private void clearEditor() {
-    htmlEditor.setHtmlText("");
-    htmlEditor.setVisible(false);
-    currentFile = null;
+  // Shows the totals of the vault, or how far counting has got, the folders in the tree show their own totals
+  private void showStatistics(VaultStatistics statistics, int counted) {
+    if (statistics != vaultStatistics || counted < 0) {
+      vaultStatistics = statistics;
+      treeView.refresh();
+    }
+    VaultStatistics.Totals totals = statistics.get("");
+    if (counted >= 0) {
+      statisticsLabel.setText(String.format("Counting... %,d files", counted));
+    } else if (totals != null) {
+      statisticsLabel.setText(String.format("%,d Skribs · %,d Words · %.1f MB", totals.notes(), totals.words(),
+          totals.bytes() / (1024.0 * 1024.0)));
+    }
+  }
+
+  // Editors and autosaves below the latencies of the stats panel
+  private String getStatsSummary() {
+    return String.format("%d live editors, about %,d MB · autosave %,d written, %,d coalesced, %,d unchanged",
+        editorPool.getLiveCount(), editorPool.getEstimatedUsage() >> 20, autosaveEngine.getSavesIssued(),
+        autosaveEngine.getSavesCoalesced(), autosaveEngine.getSavesSkipped());
+  }
+
+  // Shows how far the purge of a deleted folder has got while it runs
+  private void showDeleteProgress(TrashService.Progress progress) {
+    deleteProgressBox.setVisible(progress.running());
+    deleteProgressBox.setManaged(progress.running());
+    deleteProgressLabel.setText(String.format("Deleting %s... %,d", progress.name(), progress.deleted()));
+    deleteProgressBar.setProgress(progress.expected() > 0
+        ? Math.min(1, (double) progress.deleted() / progress.expected()) : ProgressBar.INDETERMINATE_PROGRESS);
+  }
+
+  // Stops purging deleted folders, the rest stays in the vault's trash and is purged when the vault opens again
+  public void cancelDelete() {
+    trashService.cancel();
+  }
+
+  // Adds a batch of imported files and folders to the listed part of the tree, folders that were never expanded list
+  // them later
+  private void addImportedEntries(List<NoteStore.Entry> entries) {
+    for (NoteStore.Entry entry : entries) {
+      if (treeIndex.get(entry.path()) == null
+          && treeIndex.get(entry.path().getParent()) instanceof LazyDirectoryTreeItem parent) {
+        parent.addChild(entry.path(), entry.directory());
+      }
+    }
+  }
+
+  private void showArchiveAlert(AlertType type, String title, String content) {
+    Alert alert = new Alert(type);
+    alert.setTitle(title);
+    alert.setHeaderText(null);
+    alert.setContentText(content);
+    alert.showAndWait();
+  }
+
+  private static Throwable unwrap(Throwable e) {
+    return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+  }
+
+  // Shows how far an export or import has got while it runs
+  private void showArchiveProgress(ArchiveService.Progress progress) {
+    archiveProgressBox.setVisible(progress.running());
+    archiveProgressBox.setManaged(progress.running());
+    archiveProgressLabel.setText(String.format("%s... %.1f MB", progress.task(), progress.done() / (1024.0 * 1024.0)));
+    archiveProgressBar.setProgress(progress.total() > 0
+        ? Math.min(1, (double) progress.done() / progress.total()) : ProgressBar.INDETERMINATE_PROGRESS);
+  }
+
+  // Stops the running export or import, a cancelled export leaves no archive, what an import unpacked stays
+  public void cancelArchive() {
+    archiveService.cancel();
+  }
+
+  // Shows how many lines of a large note have been indexed so far
+  private void updateLineCount(int lineCount) {
+    largeNoteLineCount = lineCount;
+    if (activeTab != null && activeTab.isLarge()) {
+      wordCountLabel.setText(lineCountText(lineCount));
+    }
+  }
+
+  private static String lineCountText(int lineCount) {
+    return lineCount + (lineCount == 1 ? " Line" : " Lines") + " (read only)";
+  }
+
+  // Lists the search hits below the search field, picking one opens the note
+  private void showSearchResults(List<Path> results) {
+    if (searchField.getText() == null || searchField.getText().isBlank()) {
+      return; // the query was cleared while the search was running
+    }
+    searchResultsMenu.getItems().clear();
+    if (results.isEmpty()) {
+      MenuItem noResults = new MenuItem("No matching Skribs");
+      noResults.setDisable(true);
+      searchResultsMenu.getItems().add(noResults);
+    }
+    for (Path result : results) {
+      MenuItem resultItem = new MenuItem(storageDirectory.toPath().relativize(result).toString());
+      resultItem.setOnAction(_ -> loadFileContent(result.toFile()));
+      searchResultsMenu.getItems().add(resultItem);
+    }
+    if (!searchResultsMenu.isShowing()) {
+      searchResultsMenu.show(searchField, Side.TOP, 0, 0);
+    }
   }
 
 }
\ No newline at end of file
@@ -0,0 +1,270 @@
+package application;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+
+// Keeps the search index of the open vault up to date on a background thread and answers queries
+public class SearchService {
+  private static final String INDEX_FILE = "search.idx";
+  private static final int BUILD_BATCH_SIZE = 200; // notes indexed before queued queries get a turn
+  private static final long SAVE_DELAY_SECONDS = 5; // changes are written to disk in batches
+
+  // everything below is only touched by the search thread
+  private final ScheduledExecutorService executor;
+  private SearchIndex index = new SearchIndex();
+  private Path vault;
+  private int generation; // bumped whenever another vault opens, so a stale build stops
+  private boolean changed; // index differs from the file on disk
+  private ScheduledFuture<?> pendingSave;
+
+  private record Query(String text, int limit, Consumer<List<Path>> resultHandler) {}
+
+  private final AtomicReference<Query> pendingQuery = new AtomicReference<>(); // newest query, older ones are dropped
+
+  public SearchService() {
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "skrib-search");
+      thread.setDaemon(true);
+      return thread;
+    });
+    // a delayed save is dropped at exit instead of holding up shutdown, the save shutdown queues writes the index
+    scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    executor = scheduler;
+  }
+
+  // Load the stored index of a vault, then bring it up to date with the notes on disk
+  public void open(Path vaultDirectory) {
+    executor.execute(() -> {
+      saveNow();
+      vault = vaultDirectory;
+      int build = ++generation;
+      Path indexFile = VaultFiles.metadataDirectory(vault).resolve(INDEX_FILE);
+      try {
+        index = Files.exists(indexFile) ? SearchIndex.read(indexFile) : new SearchIndex();
+      } catch (IOException e) {
+        e.printStackTrace(); // a damaged index is simply rebuilt
+        index = new SearchIndex();
+      }
+      reconcile(vault, build);
+    });
+  }
+
+  // Called after a note was written, the content is indexed without reading the file again
+  public void update(Path file, String content) {
+    executor.execute(() -> {
+      if (!inVault(file)) {
+        return;
+      }
+      try {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        index.put(relativeName(file), attributes.lastModifiedTime().toMillis(), attributes.size(), content);
+        markChanged();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    });
+  }
+
+  public void remove(Path file) {
+    executor.execute(() -> {
+      if (inVault(file)) {
+        index.remove(relativeName(file));
+        markChanged();
+      }
+    });
+  }
+
+  // forget every note inside a deleted folder
+  public void removeTree(Path directory) {
+    executor.execute(() -> {
+      if (inVault(directory)) {
+        index.removeUnder(relativeName(directory));
+        markChanged();
+      }
+    });
+  }
+
+  // Bring a note or folder that changed outside of Skribber up to date, notes that didn't change aren't read
+  public void refresh(Path path) {
+    executor.execute(() -> {
+      if (!inVault(path)) {
+        return;
+      }
+      if (Files.isDirectory(path)) {
+        reconcile(path, generation);
+      } else if (Files.isRegularFile(path)) {
+        if (VaultFiles.isNote(path)) {
+          indexBatch(generation, List.of(relativeName(path)), 0);
+        }
+      } else {
+        index.remove(relativeName(path));
+        index.removeUnder(relativeName(path));
+        markChanged();
+      }
+    });
+  }
+
+  // Run a query in the background, the ranked note paths are handed to resultHandler on the FX thread
+  public void search(String text, int limit, Consumer<List<Path>> resultHandler) {
+    if (pendingQuery.getAndSet(new Query(text, limit, resultHandler)) == null) {
+      executor.execute(this::runPendingQuery);
+    }
+  }
+
+  public void shutdown() {
+    executor.execute(this::saveNow);
+    executor.shutdown();
+    try {
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void runPendingQuery() {
+    Query query = pendingQuery.getAndSet(null);
+    if (query == null) {
+      return;
+    }
+    List<Path> results = new ArrayList<>();
+    if (vault != null) {
+      for (SearchIndex.Hit hit : index.search(query.text(), query.limit())) {
+        results.add(vault.resolve(hit.path()));
+      }
+    }
+    Platform.runLater(() -> query.resultHandler().accept(results));
+  }
+
+  // drop notes below root which are gone and queue the ones which changed since they were indexed
+  private void reconcile(Path root, int build) {
+    Map<String, BasicFileAttributes> notes = new HashMap<>();
+    try {
+      Files.walkFileTree(root, new SimpleFileVisitor<>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+          return VaultFiles.isMetadata(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+          if (attributes.isRegularFile() && VaultFiles.isNote(file)) {
+            notes.put(relativeName(file), attributes);
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      e.printStackTrace();
+      return;
+    }
+
+    String rootName = relativeName(root);
+    String prefix = rootName.isEmpty() ? "" : rootName + "/";
+    boolean removed = false;
+    for (String indexed : index.paths()) {
+      if (indexed.startsWith(prefix) && !notes.containsKey(indexed)) {
+        index.remove(indexed);
+        removed = true;
+      }
+    }
+    if (removed) {
+      markChanged();
+    }
+
+    List<String> stale = new ArrayList<>();
+    for (Map.Entry<String, BasicFileAttributes> note : notes.entrySet()) {
+      BasicFileAttributes attributes = note.getValue();
+      if (!index.isCurrent(note.getKey(), attributes.lastModifiedTime().toMillis(), attributes.size())) {
+        stale.add(note.getKey());
+      }
+    }
+    indexBatch(build, stale, 0);
+  }
+
+  // index a slice of the stale notes and requeue the rest, so queries keep getting answered during a build
+  private void indexBatch(int build, List<String> stale, int from) {
+    if (build != generation) {
+      return;
+    }
+    int to = Math.min(stale.size(), from + BUILD_BATCH_SIZE);
+    for (int i = from; i < to; i++) {
+      Path file = vault.resolve(stale.get(i));
+      try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().toMillis();
+        if (!index.isCurrent(stale.get(i), modified, attributes.size())) {
+          index.put(stale.get(i), modified, attributes.size(), reader);
+        }
+      } catch (NoSuchFileException e) {
+        index.remove(stale.get(i));
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+    if (to < stale.size()) {
+      changed = true;
+      if (!executor.isShutdown()) { // at exit the save queued by shutdown writes what was indexed so far
+        executor.execute(() -> indexBatch(build, stale, to));
+      }
+    } else if (to > from) {
+      markChanged();
+    }
+  }
+
+  private void markChanged() {
+    changed = true;
+    if (index.needsCompaction()) {
+      index.compact();
+    }
+    if ((pendingSave == null || pendingSave.isDone()) && !executor.isShutdown()) {
+      pendingSave = executor.schedule(this::saveNow, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  private void saveNow() {
+    if (!changed || vault == null) {
+      return;
+    }
+    try {
+      Path metadata = VaultFiles.metadataDirectory(vault);
+      Files.createDirectories(metadata);
+      index.write(metadata.resolve(INDEX_FILE));
+      changed = false;
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private boolean inVault(Path path) {
+    return vault != null && path.toAbsolutePath().startsWith(vault.toAbsolutePath());
+  }
+
+  private String relativeName(Path path) {
+    return VaultFiles.relativeName(vault.toAbsolutePath(), path.toAbsolutePath());
+  }
+}
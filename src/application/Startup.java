@@ -0,0 +1,96 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.prefs.Preferences;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+
+// Staged startup of the app. The window is shown as soon as the FXML is loaded, preferences and resources are loaded
+// in parallel while the FX toolkit starts and the vault is opened in the background once the window is up. The time
+// from main to the first paint is measured against a budget, so a slow startup is noticed when it's introduced.
+public final class Startup {
+  private static final String PREF_KEY_STARTUP_BUDGET = "startupBudgetMillis"; // Key for how long startup may take
+  private static final long DEFAULT_STARTUP_BUDGET = 1500;
+
+  private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "skrib-startup");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private static final List<String> STAGES = new ArrayList<>(); // e.g. "fxml 180 ms", only touched by the FX thread
+  private static long started;
+  private static Metrics.Timer timer;
+  private static CompletableFuture<Void> preloaded = CompletableFuture.completedFuture(null);
+
+  private Startup() {}
+
+  // Called first thing in main, preferences and resources are loaded while the FX toolkit starts
+  public static void begin() {
+    started = System.nanoTime();
+    timer = Metrics.start(Metrics.Operation.STARTUP);
+    preloaded = CompletableFuture.allOf(
+        CompletableFuture.runAsync(ResourceCache::preload, EXECUTOR),
+        CompletableFuture.runAsync(Startup::loadPreferences, EXECUTOR));
+  }
+
+  // Background work of the startup, e.g. reading the catalog of the vault
+  public static ExecutorService executor() {
+    return EXECUTOR;
+  }
+
+  // Waits for the preloading, usually long done by the time the first window is built
+  public static void awaitPreloaded() {
+    preloaded.join();
+  }
+
+  // Note how long startup took up to a stage, shown when the first paint is logged
+  public static void mark(String stage) {
+    STAGES.add(String.format("%s %d ms", stage, elapsedMillis()));
+  }
+
+  // Stops the measurement at the first pulse that lays out the shown window, which is the one that paints it
+  public static void measureFirstPaint(Scene scene) {
+    Runnable[] listener = new Runnable[1];
+    listener[0] = () -> {
+      Platform.runLater(() -> scene.removePostLayoutPulseListener(listener[0])); // not while the pulse runs it
+      if (timer != null) {
+        firstPaint();
+      }
+    };
+    scene.addPostLayoutPulseListener(listener[0]);
+  }
+
+  private static void firstPaint() {
+    long elapsed = elapsedMillis();
+    long budget = getStartupBudget();
+    mark("first paint");
+    String stages = String.join(", ", STAGES);
+    timer.stop(stages);
+    timer = null;
+    if (elapsed > budget) {
+      System.err.println("Startup took " + elapsed + " ms, over its budget of " + budget + " ms: " + stages);
+    }
+  }
+
+  private static long elapsedMillis() {
+    return (System.nanoTime() - started) / 1_000_000;
+  }
+
+  // The first lookup reads the preferences from the backing store, later ones are answered from memory
+  private static void loadPreferences() {
+    Preferences prefs = Preferences.userNodeForPackage(Scene1Controller.class);
+    prefs.get(PREF_KEY_STARTUP_BUDGET, null);
+  }
+
+  // Milliseconds from main to the first paint, configurable through the user's preferences
+  private static long getStartupBudget() {
+    Preferences prefs = Preferences.userNodeForPackage(Scene1Controller.class);
+    return prefs.getLong(PREF_KEY_STARTUP_BUDGET, DEFAULT_STARTUP_BUDGET);
+  }
+}
@@ -0,0 +1,92 @@
+package application;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.layout.GridPane;
+import javafx.util.Duration;
+
+// Latencies of the app's hot paths next to the editor, refreshed every second while it's shown
+public class StatsPanel extends GridPane {
+  private static final Duration REFRESH_INTERVAL = Duration.seconds(1);
+  private static final String[] HEADERS = { "Operation", "Count", "p50", "p99", "Max" };
+
+  private final Map<Metrics.Operation, Label[]> rows = new EnumMap<>(Metrics.Operation.class);
+  private final Label editorsLabel = new Label();
+  private final Label heapLabel = new Label();
+  private final Supplier<String> editorSummary; // e.g. how many editors are live
+  private final Timeline refreshTimeline = new Timeline(new KeyFrame(REFRESH_INTERVAL, _ -> refresh()));
+
+  public StatsPanel(Supplier<String> editorSummary) {
+    this.editorSummary = editorSummary;
+    getStyleClass().add("stats-panel");
+    setHgap(12);
+    setVgap(4);
+    setPadding(new Insets(8));
+
+    for (int column = 0; column < HEADERS.length; column++) {
+      Label header = new Label(HEADERS[column]);
+      header.getStyleClass().add("stats-header");
+      add(header, column, 0);
+    }
+    int row = 1;
+    for (Metrics.Operation operation : Metrics.Operation.values()) {
+      Label[] labels = new Label[HEADERS.length];
+      labels[0] = new Label(operation.getLabel());
+      for (int column = 0; column < labels.length; column++) {
+        if (labels[column] == null) {
+          labels[column] = new Label();
+        }
+        add(labels[column], column, row);
+      }
+      rows.put(operation, labels);
+      row++;
+    }
+    add(editorsLabel, 0, row++, HEADERS.length, 1);
+    add(heapLabel, 0, row++, HEADERS.length, 1);
+    Button resetButton = new Button("Reset");
+    resetButton.setOnAction(_ -> {
+      Metrics.reset();
+      refresh();
+    });
+    add(resetButton, 0, row);
+
+    refreshTimeline.setCycleCount(Animation.INDEFINITE);
+  }
+
+  // Only refreshed while it's shown
+  public void setShowing(boolean showing) {
+    if (showing) {
+      refresh();
+      refreshTimeline.play();
+    } else {
+      refreshTimeline.stop();
+    }
+  }
+
+  private void refresh() {
+    for (Map.Entry<Metrics.Operation, Label[]> row : rows.entrySet()) {
+      LatencyHistogram histogram = Metrics.get(row.getKey());
+      Label[] labels = row.getValue();
+      labels[1].setText(String.format("%,d", histogram.getCount()));
+      labels[2].setText(millis(histogram.percentile(0.5)));
+      labels[3].setText(millis(histogram.percentile(0.99)));
+      labels[4].setText(millis(histogram.getMax()));
+    }
+    editorsLabel.setText(editorSummary.get());
+    Runtime runtime = Runtime.getRuntime();
+    heapLabel.setText(String.format("Heap %,d of %,d MB", (runtime.totalMemory() - runtime.freeMemory()) >> 20,
+        runtime.maxMemory() >> 20));
+  }
+
+  private static String millis(long micros) {
+    return String.format("%.1f ms", micros / 1000.0);
+  }
+}
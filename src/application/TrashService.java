@@ -0,0 +1,103 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+
+// Deletes folders without blocking the FX thread. A folder is first renamed into the trash in the vault's metadata
+// directory, so it's gone from the vault at once and nothing is left half deleted, then purged in the background.
+// Purges that were cancelled or cut short by a crash are picked up again the next time the vault opens.
+public class TrashService {
+  // State of the purge shown to the user, name is the folder being purged
+  public record Progress(String name, int deleted, int expected, boolean running) {}
+
+  private final ExecutorService executor;
+  private final Consumer<Progress> progressHandler; // called on the FX thread
+  private final AtomicInteger generation = new AtomicInteger(); // bumped by cancel, queued purges of older ones stop
+  private final AtomicInteger deleted = new AtomicInteger();
+  private final AtomicBoolean publishScheduled = new AtomicBoolean();
+  private volatile Progress current = new Progress("", 0, 0, false);
+
+  public TrashService(Consumer<Progress> progressHandler) {
+    this.progressHandler = progressHandler;
+    executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "skrib-trash");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // Move a folder of the vault into its trash with a single rename and purge it in the background.
+  // expected is roughly how many entries it holds, only used for the progress.
+  public void delete(NoteStore store, Path directory, int expected) throws IOException {
+    Path trashed = store.moveToTrash(directory);
+    purge(store, trashed, directory.getFileName().toString(), expected);
+  }
+
+  // Purge whatever an earlier session left in the trash of a vault
+  public void purgeLeftovers(NoteStore store) {
+    int build = generation.get();
+    executor.execute(() -> {
+      try {
+        for (Path trashed : store.trashed()) {
+          purgeNow(store, trashed, "Trash", 0, build);
+        }
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    });
+  }
+
+  // Stop the running purge and the queued ones, what's left stays in the trash until the vault is opened again
+  public void cancel() {
+    generation.incrementAndGet();
+  }
+
+  public void shutdown() {
+    cancel();
+    executor.shutdown();
+  }
+
+  private void purge(NoteStore store, Path trashed, String name, int expected) {
+    int build = generation.get();
+    executor.execute(() -> purgeNow(store, trashed, name, expected, build));
+  }
+
+  private void purgeNow(NoteStore store, Path trashed, String name, int expected, int build) {
+    if (build != generation.get()) {
+      return;
+    }
+    deleted.set(0);
+    current = new Progress(name, 0, expected, true);
+    publish();
+    try {
+      store.purge(trashed, () -> build != generation.get(), this::deleted);
+    } catch (IOException e) {
+      e.printStackTrace(); // e.g. a file still open elsewhere, retried the next time the vault opens
+    }
+    current = new Progress(name, deleted.get(), expected, false);
+    publish();
+  }
+
+  private void deleted() {
+    deleted.incrementAndGet();
+    publish();
+  }
+
+  // Hand the progress to the FX thread, calls made before it ran are merged into one
+  private void publish() {
+    if (publishScheduled.compareAndSet(false, true)) {
+      Platform.runLater(() -> {
+        publishScheduled.set(false);
+        Progress progress = current;
+        progressHandler.accept(new Progress(progress.name(), deleted.get(), progress.expected(), progress.running()));
+      });
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javafx.application.Platform;
+
+// Watches every directory of the vault for changes made outside of Skribber and reports them in batches
+public class VaultWatcher {
+  private static final long BATCH_WINDOW_MILLIS = 250; // events arriving this close together are applied at once
+
+  // State of a path once the batch settled, a path that was created and deleted again reports exists = false
+  public record Change(Path path, boolean exists, boolean directory, long modified, long size) {}
+
+  // Receives each batch on the FX thread, rescans lists directories whose events were lost to an overflow
+  public interface Listener {
+    void vaultChanged(List<Change> changes, List<Path> rescans);
+  }
+
+  private final Path vault;
+  private final Listener listener;
+  private final WatchService watchService;
+  private final Map<WatchKey, Path> watchedDirectories = new HashMap<>(); // only touched by the watcher thread
+  private final Thread thread;
+
+  public VaultWatcher(Path vault, Listener listener) throws IOException {
+    this.vault = vault;
+    this.listener = listener;
+    this.watchService = vault.getFileSystem().newWatchService();
+    this.thread = new Thread(this::run, "skrib-vault-watcher");
+    thread.setDaemon(true);
+  }
+
+  public void start() {
+    thread.start();
+  }
+
+  public void stop() {
+    try {
+      watchService.close(); // wakes the watcher thread up with a ClosedWatchServiceException
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void run() {
+    try {
+      registerTree(vault);
+      while (true) {
+        WatchKey key = watchService.take();
+        Set<Path> touched = new LinkedHashSet<>();
+        Set<Path> rescans = new LinkedHashSet<>();
+        long windowEnd = System.currentTimeMillis() + BATCH_WINDOW_MILLIS;
+        while (key != null) {
+          collectEvents(key, touched, rescans);
+          long remaining = windowEnd - System.currentTimeMillis();
+          key = remaining > 0 ? watchService.poll(remaining, TimeUnit.MILLISECONDS) : watchService.poll();
+        }
+        publish(touched, rescans);
+      }
+    } catch (ClosedWatchServiceException e) {
+      // stopped
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  private void collectEvents(WatchKey key, Set<Path> touched, Set<Path> rescans) {
+    Path directory = watchedDirectories.get(key);
+    if (directory == null) {
+      key.cancel();
+      return;
+    }
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        rescans.add(directory); // events of this directory were dropped, only its listing can be trusted
+        continue;
+      }
+      Path path = directory.resolve((Path) event.context());
+      if (VaultFiles.isMetadata(path) || VaultFiles.isTemporary(path)) {
+        continue;
+      }
+      touched.add(path);
+      if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+        try {
+          registerTree(path); // folders copied or pulled into the vault need watching too
+        } catch (IOException e) {
+          e.printStackTrace(); // e.g. removed again right away, the batch reports it as gone
+        }
+      }
+    }
+    if (!key.reset()) {
+      watchedDirectories.remove(key); // the directory itself is gone
+    }
+  }
+
+  private void publish(Set<Path> touched, Set<Path> rescans) {
+    List<Change> changes = new ArrayList<>(touched.size());
+    for (Path path : touched) {
+      // the final state is checked once, so create/delete pairs like atomic saves collapse into one change
+      try {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        changes.add(new Change(path, true, attributes.isDirectory(), attributes.lastModifiedTime().toMillis(),
+            attributes.size()));
+      } catch (IOException e) {
+        changes.add(new Change(path, false, false, 0, 0));
+      }
+    }
+    List<Path> rescanned = new ArrayList<>(rescans);
+    if (!changes.isEmpty() || !rescanned.isEmpty()) {
+      Platform.runLater(() -> listener.vaultChanged(changes, rescanned));
+    }
+  }
+
+  private void registerTree(Path root) throws IOException {
+    Files.walkFileTree(root, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+        if (VaultFiles.isMetadata(dir)) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchedDirectories.put(key, dir);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException e) {
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+}
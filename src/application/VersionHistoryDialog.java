@@ -0,0 +1,92 @@
+package application;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.control.ButtonBar.ButtonData;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SplitPane;
+import javafx.scene.web.WebView;
+import javafx.stage.Stage;
+
+// Lists the saved versions of a note, newest first, next to a preview of the selected one.
+// The result is the content of the version to restore.
+public class VersionHistoryDialog extends Dialog<String> {
+  private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+      .withZone(ZoneId.systemDefault());
+
+  private final ListView<VersionPack.Version> versionList = new ListView<>();
+  private final WebView preview = new WebView();
+  private final ButtonType restoreButtonType = new ButtonType("Restore", ButtonData.OK_DONE);
+  private String selectedContent; // content of the selected version, null until it has been read
+
+  public VersionHistoryDialog(VersionHistory history, Path note) {
+    setTitle("Skrib History");
+    setHeaderText(note.getFileName().toString());
+    Stage stage = (Stage) getDialogPane().getScene().getWindow();
+    stage.getIcons().add(ResourceCache.icon());
+
+    versionList.setPlaceholder(new Label("Loading versions..."));
+    versionList.setCellFactory(_ -> new ListCell<>() {
+      @Override
+      protected void updateItem(VersionPack.Version version, boolean empty) {
+        super.updateItem(version, empty);
+        setText(empty || version == null ? null : TIME_FORMAT.format(Instant.ofEpochMilli(version.timestamp()))
+            + String.format("  (%,d characters)", version.length()));
+      }
+    });
+    preview.getEngine().setJavaScriptEnabled(false); // only shown, never edited
+    SplitPane content = new SplitPane(versionList, preview);
+    content.setDividerPositions(0.35);
+    content.setPrefSize(800, 500);
+    getDialogPane().setContent(content);
+    getDialogPane().getButtonTypes().setAll(restoreButtonType, ButtonType.CANCEL);
+    Node restoreButton = getDialogPane().lookupButton(restoreButtonType);
+    restoreButton.setDisable(true);
+
+    // versions are read on the history thread, a preview that arrives after another version was picked is dropped
+    versionList.getSelectionModel().selectedItemProperty().addListener((_, _, version) -> {
+      selectedContent = null;
+      restoreButton.setDisable(true);
+      if (version == null) {
+        preview.getEngine().loadContent("");
+        return;
+      }
+      history.read(note, version).whenComplete((text, error) -> Platform.runLater(() -> {
+        if (version != versionList.getSelectionModel().getSelectedItem()) {
+          return;
+        }
+        if (error != null) {
+          error.printStackTrace();
+          preview.getEngine().loadContent("<p>This version can't be read.</p>");
+          return;
+        }
+        selectedContent = text;
+        preview.getEngine().loadContent(text);
+        restoreButton.setDisable(false);
+      }));
+    });
+
+    history.versions(note).whenComplete((versions, error) -> Platform.runLater(() -> {
+      if (error != null) {
+        error.printStackTrace();
+        versionList.setPlaceholder(new Label("The history of this Skrib can't be read."));
+      } else if (versions.isEmpty()) {
+        versionList.setPlaceholder(new Label("No versions saved yet."));
+      } else {
+        versionList.getItems().setAll(versions.reversed());
+        versionList.getSelectionModel().selectFirst();
+      }
+    }));
+
+    setResultConverter(buttonType -> buttonType == restoreButtonType ? selectedContent : null);
+  }
+}
@@ -0,0 +1,80 @@
+package application;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.util.Duration;
+
+// Counts the words of the open note on a background thread, throttled and with at most one count pending
+public class WordCountService {
+  private final Supplier<String> htmlSupplier; // reads the editor content, only called on the FX thread
+  private final IntConsumer countHandler; // receives the word count on the FX thread
+  private final PauseTransition throttle;
+  private final ExecutorService worker;
+  private final AtomicReference<String> pending = new AtomicReference<>(); // latest snapshot waiting to be counted
+  private final HtmlTokenizer tokenizer = new HtmlTokenizer(); // only used by the worker thread
+
+  private boolean requestedWhileThrottled;
+
+  public WordCountService(Supplier<String> htmlSupplier, Duration minInterval, IntConsumer countHandler) {
+    this.htmlSupplier = htmlSupplier;
+    this.countHandler = countHandler;
+
+    throttle = new PauseTransition(minInterval);
+    throttle.setOnFinished(_ -> {
+      // edits made during the interval are counted once at its end
+      if (requestedWhileThrottled) {
+        requestedWhileThrottled = false;
+        submit();
+        throttle.playFromStart();
+      }
+    });
+
+    worker = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "skrib-word-count");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  // Called on the FX thread whenever the note may have changed
+  public void requestCount() {
+    if (throttle.getStatus() == Animation.Status.RUNNING) {
+      requestedWhileThrottled = true;
+      return;
+    }
+    submit();
+    throttle.playFromStart();
+  }
+
+  public void shutdown() {
+    worker.shutdownNow();
+  }
+
+  private void submit() {
+    // a count already waiting just picks up the newer snapshot instead of queueing another one
+    if (pending.getAndSet(htmlSupplier.get()) == null) {
+      worker.execute(this::countPending);
+    }
+  }
+
+  private void countPending() {
+    String html = pending.getAndSet(null);
+    if (html == null) {
+      return;
+    }
+    Metrics.Timer timer = Metrics.start(Metrics.Operation.WORD_COUNT);
+    tokenizer.reset();
+    tokenizer.feed(html);
+    tokenizer.finish();
+    int wordCount = tokenizer.wordCount();
+    timer.stop(String.format("%,d characters", html.length()));
+    Platform.runLater(() -> countHandler.accept(wordCount));
+  }
+}